@@ -0,0 +1,14 @@
+package sn.api.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@Builder
+@RequiredArgsConstructor
+public class CountResponse extends AbstractResponse {
+    @JsonProperty("count")
+    private final long count;
+}
@@ -0,0 +1,16 @@
+package sn.api.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@Builder
+@RequiredArgsConstructor
+public class DialogEventResponse extends AbstractResponse {
+    @JsonProperty("dialog_id")
+    private final long dialogId;
+    @JsonProperty("message")
+    private final MessageFullResponse message;
+}
@@ -1,12 +1,14 @@
 package sn.api.response;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import java.util.List;
 
 @Getter
 @Setter
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class LikeCountResponse extends AbstractResponse {
 
     private int likes;
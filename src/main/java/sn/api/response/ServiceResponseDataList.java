@@ -16,6 +16,7 @@ public class ServiceResponseDataList<T extends AbstractResponse> {
     private int offset;
     private int perPage;
     private List<T> data;
+    private String next;
 
     private ServiceResponseDataList() {
         this.timestamp = TimeUtil.getTimestampFromLocalDateTime(LocalDateTime.now(TimeUtil.TIME_ZONE));
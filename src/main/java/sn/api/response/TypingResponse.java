@@ -0,0 +1,18 @@
+package sn.api.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Builder
+@RequiredArgsConstructor
+public class TypingResponse extends AbstractResponse {
+    @JsonProperty("dialog_id")
+    private final long dialogId;
+    @JsonProperty("user_ids")
+    private final List<Long> userIds;
+}
@@ -1,5 +1,6 @@
 package sn.api.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
 import lombok.Getter;
@@ -9,6 +10,9 @@ import lombok.RequiredArgsConstructor;
 @Builder
 @RequiredArgsConstructor
 public class UserActivityResponse extends AbstractResponse {
+    @JsonProperty("id")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Long id;
     @JsonProperty("online")
     private final boolean online;
     @JsonProperty("last_activity")
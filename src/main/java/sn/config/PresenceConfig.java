@@ -0,0 +1,39 @@
+package sn.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import sn.service.PresenceService;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Отметка активности авторизованного пользователя на каждом запросе к контроллерам.
+ * ID пользователя берётся из токена, без обращения к базе.
+ */
+@Configuration
+public class PresenceConfig implements WebMvcConfigurer {
+    private final PresenceService presenceService;
+
+    public PresenceConfig(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                if (authentication != null && authentication.getDetails() instanceof Long) {
+                    presenceService.heartbeat((Long) authentication.getDetails());
+                }
+                return true;
+            }
+        });
+    }
+}
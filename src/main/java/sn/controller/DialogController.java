@@ -5,12 +5,17 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import sn.api.requests.MessageSendRequest;
 import sn.api.response.AbstractResponse;
 import sn.api.response.DialogResponse;
+import sn.api.response.MessageFullResponse;
 import sn.api.response.ServiceResponse;
+import sn.api.response.ServiceResponseDataList;
 import sn.service.DialogService;
 
 import java.util.List;
@@ -140,16 +145,40 @@ public class DialogController {
      * @param query       - строка для поиска (поиск как части в Message.messageText).
      * @param offset      - смещение от начала списка сообщений.
      * @param itemPerPage - количество сообщений на страницу.
-     * @return список сообщений.
+     * @param after       - курсор последнего полученного сообщения (поле next предыдущего ответа).
+     *                    Если указан, offset не используется.
+     * @return список сообщений: без курсора - ServiceResponse с DialogResponse, как раньше;
+     * с курсором - ServiceResponseDataList с MessageFullResponse и курсором следующей страницы в поле next.
      */
     @GetMapping("/{id}/messages")
-    public ResponseEntity<ServiceResponse<DialogResponse>> getMessages(@PathVariable("id") long dialogId,
-                                                                       @RequestParam(required = false) String query,
-                                                                       @RequestParam int offset,
-                                                                       @RequestParam int itemPerPage) {
+    public ResponseEntity<?> getMessages(
+            @PathVariable("id") long dialogId,
+            @RequestParam(required = false) String query,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam int itemPerPage,
+            @RequestParam(required = false) String after) {
+        if (after != null) {
+            return dialogService.getDialogMessagesAfter(dialogId, query, after, itemPerPage);
+        }
         return dialogService.getDialogMessages(dialogId, query, offset, itemPerPage);
     }
 
+    /**
+     * Ожидание новых сообщений диалога (long polling).
+     * GET запрос /api/v1/dialogs/{id}/messages/poll
+     *
+     * @param dialogId - Id диалога.
+     * @param after    - ID последнего полученного сообщения.
+     * @return сообщения новее указанного в порядке отправки, как только они появятся,
+     * или пустой список по истечении времени ожидания.
+     */
+    @GetMapping("/{id}/messages/poll")
+    public DeferredResult<ResponseEntity<ServiceResponseDataList<MessageFullResponse>>> pollMessages(
+            @PathVariable("id") long dialogId,
+            @RequestParam long after) {
+        return dialogService.pollDialogMessages(dialogId, after);
+    }
+
     /**
      * Пометить сообщение как "Прочитанное".
      *
@@ -181,10 +210,10 @@ public class DialogController {
     }
 
     /**
-     * Изменить статус набора текста пользователем в диалоге.
+     * Изменить статус набора текста текущим пользователем в диалоге.
      *
      * @param dialogId - ID диалога.
-     * @param personId - ID пользователя, статус набора текста которого надо изменить.
+     * @param personId - ID текущего пользователя, для другого пользователя запрос отклоняется.
      * @return ответ с сообщением OK.
      */
     @PostMapping("/{id}/activity/{user_id}")
@@ -195,6 +224,29 @@ public class DialogController {
         return dialogService.changeTypingStatus(dialogId, personId);
     }
 
+    /**
+     * Подписка на изменения сообщений во всех диалогах текущего пользователя.
+     * Поток Server-Sent Events: события message_sent, message_edited, message_removed, message_read
+     * с ID диалога и сообщением.
+     *
+     * @return поток событий.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe() {
+        return dialogService.subscribe();
+    }
+
+    /**
+     * Получить пользователей, набирающих текст в диалоге.
+     *
+     * @param dialogId - ID диалога.
+     * @return ID диалога и ID пользователей, набирающих текст, кроме текущего.
+     */
+    @GetMapping("/{id}/typing")
+    public ResponseEntity<ServiceResponse<AbstractResponse>> getTypingUsers(@PathVariable("id") long dialogId) {
+        return dialogService.getTypingUsers(dialogId);
+    }
+
     /**
      * Отправка сообщения.
      *
@@ -4,8 +4,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import sn.api.response.ServiceResponse;
+import sn.api.response.ServiceResponseDataList;
+import sn.api.response.WallPostResponse;
 import sn.service.FeedService;
 
 /**
@@ -26,10 +28,15 @@ public class FeedController {
      * @param name Текст новости для поиска
      * @param offset Отступ от начала списка
      * @param itemPerPage Количество элементов на страницу
+     * @param after Курсор последней полученной новости (значение next из предыдущего ответа)
      * @return 200 - список новостей получен успешно, 400 - ошибка во время получения списка, 401 - ошибка авторизации.
      */
     @GetMapping
-    public ResponseEntity<ServiceResponse> getFeeds(String name, int offset, int itemPerPage) {
-        return feedService.getFeeds(name, offset, itemPerPage);
+    public ResponseEntity<ServiceResponseDataList<WallPostResponse>> getFeeds(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "itemPerPage", defaultValue = "20") int itemPerPage,
+            @RequestParam(value = "after", required = false) String after) {
+        return feedService.getFeeds(name, offset, itemPerPage, after);
     }
 }
@@ -22,6 +22,7 @@ import sn.api.response.ServiceResponseDataList;
 import sn.model.Person;
 import sn.service.AccountService;
 import sn.service.FriendService;
+import sn.utils.PageCursor;
 
 /**
  * Класс FriendController.
@@ -45,24 +46,54 @@ public class FriendController {
      * @param offset      - Отступ от начала результирующего списка пользователей.
      * @param itemPerPage - Количество пользователей из результирующего списка, которые представлены для
      *                    отображения.
-     * @return 200 - список друзей получен успешно (может быть пустым)
+     * @param after       - курсор последнего полученного друга (поле next предыдущего ответа). Если указан,
+     *                    offset не используется, друзья выдаются по убыванию даты регистрации.
+     * @return 200 - список друзей получен успешно (может быть пустым), 400 - некорректный курсор
      */
 
     @GetMapping("/friends")
     public ResponseEntity<ServiceResponseDataList<PersonResponse>> getFriendList(
         @RequestParam(required = false) String name,
         @RequestParam(defaultValue = "0") int offset,
-        @RequestParam(defaultValue = "20") int itemPerPage
+        @RequestParam(defaultValue = "20") int itemPerPage,
+        @RequestParam(required = false) String after
     ) {
-
+        long personId = accountService.findCurrentUser().getId();
+        if (after != null) {
+            return getFriendListAfter(personId, name, after, itemPerPage);
+        }
         List<Person> friendList = friendService
-            .getFriendList(accountService.findCurrentUser().getId(), name, offset, itemPerPage);
+            .getFriendList(personId, name, offset, itemPerPage);
         return ResponseEntity
             .ok(new ServiceResponseDataList<>(
-                friendService.getFriendsCount(accountService.findCurrentUser().getId()), offset, itemPerPage,
+                friendService.getFriendsCount(personId), offset, itemPerPage,
                 friendList.stream().map(accountService::getPersonResponse).collect(Collectors.toList())));
     }
 
+    private ResponseEntity<ServiceResponseDataList<PersonResponse>> getFriendListAfter(
+        long personId, String name, String after, int itemPerPage
+    ) {
+        PageCursor cursor;
+        try {
+            cursor = PageCursor.parse(after);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ServiceResponseDataList<>(e.getMessage()));
+        }
+        int pageSize = Math.max(itemPerPage, 0);
+        List<Person> friends = friendService.getFriendListAfter(personId, name, cursor, pageSize + 1);
+        boolean hasMore = friends.size() > pageSize;
+        List<Person> friendList = hasMore ? friends.subList(0, pageSize) : friends;
+        ServiceResponseDataList<PersonResponse> response = new ServiceResponseDataList<>(
+            friendService.getFriendsCount(personId), 0, itemPerPage,
+            friendList.stream().map(accountService::getPersonResponse).collect(Collectors.toList()));
+        if (hasMore && !friendList.isEmpty()) {
+            Person last = friendList.get(friendList.size() - 1);
+            response.setNext(PageCursor.toToken(last.getRegDate() != null ? last.getRegDate() : PageCursor.NO_TIME,
+                last.getId()));
+        }
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Метод deleteFriend. Удалить друга из друзей. DELETE запрос /api/v1/friends/{friendId}
      *
@@ -2,6 +2,7 @@ package sn.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import sn.api.requests.LikeRequest;
@@ -13,6 +14,7 @@ import sn.service.AccountService;
 import sn.service.LikeService;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -27,6 +29,9 @@ public class LikeController {
     @Autowired
     private PersonRepository personRepository;
 
+    @Value("${likes.liked-max-items}")
+    private int likedMaxItems;
+
     @GetMapping("/liked")
     public ResponseEntity<Boolean> userHasLiked(
             @RequestParam(value = "user_id") long personId,
@@ -42,21 +47,74 @@ public class LikeController {
         return ResponseEntity.ok(likes);
     }
 
+    /**
+     * Отметки "мне нравится" текущего пользователя среди переданных объектов.
+     * POST запрос /api/v1/liked
+     *
+     * @param items - идентификаторы объектов по типам лайка.
+     * @return 200 - идентификаторы объектов, под которыми стоит лайк пользователя, по типам лайка;
+     * 400 - пользователь не авторизован или передано слишком много объектов.
+     */
+    @PostMapping("/liked")
+    public ResponseEntity<Map<LikeType, List<Long>>> userHasLikedItems(
+            @RequestBody Map<LikeType, List<Long>> items
+    ) {
+        Person person = accountService.findCurrentUser();
+        int count = items.values().stream().mapToInt(ids -> ids == null ? 0 : ids.size()).sum();
+        if (person == null || count > likedMaxItems) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(likeService.getLikedItems(person, items));
+    }
+
+    /**
+     * Количество лайков под объектом и список поставивших их пользователей.
+     * GET запрос /api/v1/likes
+     *
+     * @param itemId    - идентификатор объекта.
+     * @param type      - тип лайка.
+     * @param countOnly - вернуть только количество лайков, без списка пользователей.
+     * @return 200 - количество лайков и, если не указан count_only, идентификаторы пользователей.
+     */
     @GetMapping("/likes")
     public ResponseEntity<LikeCountResponse> getLikes(
             @RequestParam(value = "item_id") long itemId,
-            @RequestParam(value = "type") LikeType type
+            @RequestParam(value = "type") LikeType type,
+            @RequestParam(value = "count_only", defaultValue = "false") boolean countOnly
     ) {
+        if (countOnly) {
+            return ResponseEntity.ok(new LikeCountResponse(likeService.getLikesCount(itemId, type), null));
+        }
         List<Long> usersId = likeService.getUsersOfLike(itemId, type);
         return ResponseEntity.ok(new LikeCountResponse(usersId.size(), usersId));
     }
 
+    /**
+     * Постраничный список пользователей, поставивших лайк под объектом, в порядке "сначала новые".
+     * GET запрос /api/v1/likes/users
+     *
+     * @param itemId      - идентификатор объекта.
+     * @param type        - тип лайка.
+     * @param after       - курсор последней полученной страницы (поле next предыдущего ответа).
+     * @param itemPerPage - количество пользователей на страницу.
+     * @return 200 - идентификаторы пользователей, общее количество лайков и курсор следующей страницы.
+     */
+    @GetMapping("/likes/users")
+    public ResponseEntity<ServiceResponseDataList<IdResponse>> getUsersOfLike(
+            @RequestParam(value = "item_id") long itemId,
+            @RequestParam(value = "type") LikeType type,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "itemPerPage", defaultValue = "20") int itemPerPage
+    ) {
+        return ResponseEntity.ok(likeService.getUsersOfLikePage(itemId, type, after, itemPerPage));
+    }
+
     @PutMapping("/likes")
     public ResponseEntity<?> putLike(@RequestBody LikeRequest lk) {
         boolean result = likeService.putLike(accountService.findCurrentUser(), lk.getItemId(), lk.getType());
         if (result) {
-            List<Long> usersId = likeService.getUsersOfLike(lk.getItemId(), lk.getType());
-            return ResponseEntity.ok(new LikeCountResponse(usersId.size(), usersId));
+            return ResponseEntity.ok(new LikeCountResponse(likeService.getLikesCount(lk.getItemId(), lk.getType()),
+                    null));
         } else {
             return ResponseEntity.badRequest().body("User have like on this item");
         }
@@ -68,7 +126,6 @@ public class LikeController {
             @RequestParam(value = "type") LikeType type
     ) {
         likeService.removeLike(accountService.findCurrentUser(), itemId, type);
-        List<Long> usersId = likeService.getUsersOfLike(itemId, type);
-        return ResponseEntity.ok(new LikeCountResponse(usersId.size(), usersId));
+        return ResponseEntity.ok(new LikeCountResponse(likeService.getLikesCount(itemId, type), null));
     }
-}
\ No newline at end of file
+}
@@ -6,11 +6,20 @@ package sn.controller;
  */
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import sn.api.response.CountResponse;
 import sn.api.response.NotificationResponse;
+import sn.api.response.ServiceResponse;
 import sn.api.response.ServiceResponseDataList;
+import sn.model.Person;
 import sn.service.AccountService;
 import sn.service.NotificationService;
+import sn.utils.PageCursor;
 
 /**
  * REST-контроллер для работы с уведомлением.
@@ -30,15 +39,64 @@ public class NotificationController {
      *
      * @param offset      - отступ от начала списка.
      * @param itemPerPage - количество диалогов на страницу.
-     * @return список диалогов пользователя в json формате
+     * @param after       - курсор последнего полученного уведомления (поле next предыдущего ответа).
+     *                    Если указан, offset не используется.
+     * @return список диалогов пользователя в json формате, 400 - некорректный курсор
      */
     @GetMapping
-    public ServiceResponseDataList<NotificationResponse> getNotificationList(@RequestParam int offset,
-                                                                            @RequestParam(defaultValue = "20") int itemPerPage){
+    public ResponseEntity<ServiceResponseDataList<NotificationResponse>> getNotificationList(@RequestParam(defaultValue = "0") int offset,
+                                                                                            @RequestParam(defaultValue = "20") int itemPerPage,
+                                                                                            @RequestParam(required = false) String after){
+        if (after != null) {
+            PageCursor cursor;
+            try {
+                cursor = PageCursor.parse(after);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(new ServiceResponseDataList<>(e.getMessage()));
+            }
+            return ResponseEntity.ok(notificationService.getNotificationAfter(accountService.findCurrentUser(), cursor,
+                                                                              itemPerPage));
+        }
+        return ResponseEntity.ok(notificationService.getNotificationByPage(accountService.findCurrentUser(), offset,
+                                                                           itemPerPage));
+    }
+
 
-        return notificationService.getNotificationByPage(accountService.findCurrentUser(), offset, itemPerPage);
+    /**
+     * Метод subscribe().
+     * Поток новых уведомлений текущего пользователя (Server-Sent Events).
+     * GET запрос /api/v1/notifications/stream.
+     *
+     * @param lastEventId      - заголовок Last-Event-ID, который браузер передаёт при переподключении.
+     * @param lastEventIdParam - ID последнего полученного уведомления, если заголовок передать нельзя.
+     * @return поток событий notification с NotificationResponse, ID события - ID уведомления;
+     *         notification_replay_truncated, если пропущенных уведомлений больше, чем досылается.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                @RequestParam(value = "last_event_id", required = false) String lastEventIdParam) {
+        Person person = accountService.findCurrentUser();
+        if (person == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        return notificationService.subscribe(person, lastEventId != null ? lastEventId : lastEventIdParam);
     }
 
+    /**
+     * Метод getUnreadCount().
+     * Количество непрочитанных уведомлений текущего пользователя.
+     * GET запрос /api/v1/notifications/unread.
+     *
+     * @return количество непрочитанных уведомлений в json формате
+     */
+    @GetMapping("/unread")
+    public ServiceResponse<CountResponse> getUnreadCount() {
+        Person person = accountService.findCurrentUser();
+        if (person == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        return notificationService.getUnreadCount(person);
+    }
 
     /**
      * Метод getNotificationList().
@@ -47,13 +105,15 @@ public class NotificationController {
      *
      * @param id      - ID уведомления.
      * @param all - количество диалогов на страницу.
-     * @return список диалогов пользователя в json формате
+     * @param upTo - при чтении всех уведомлений: ID последнего уведомления, которое видел пользователь.
+     * @return прочитанное уведомление; при чтении всех - ID прочитанных уведомлений
      */
     @PutMapping
-    public ServiceResponseDataList<NotificationResponse> getNotificationByIdOrAll(@RequestParam Long id,
-                                                                                  @RequestParam boolean all) {
+    public ServiceResponseDataList<?> getNotificationByIdOrAll(@RequestParam Long id,
+                                                                                  @RequestParam boolean all,
+                                                                                  @RequestParam(value = "up_to", required = false) Long upTo) {
         if(all){
-            return notificationService.readAllNotification(accountService.findCurrentUser());
+            return notificationService.readAllNotification(accountService.findCurrentUser(), upTo);
         } else {
             return notificationService.readNotificationById(accountService.findCurrentUser(), id);
         }
@@ -11,6 +11,7 @@ import sn.api.requests.PostEditRequest;
 import sn.api.response.*;
 import sn.service.CommentService;
 import sn.service.PostService;
+import sn.utils.PageCursor;
 
 /**
  * Класс PostController.
@@ -33,26 +34,39 @@ public class PostController {
 
     /**
      * Метод findPosts.
-     * Поиск публикации.
+     * Полнотекстовый поиск публикаций по заголовку и тексту.
      * GET запрос /api/v1/post
      *
-     * @param text текст публикации.
+     * @param text поисковый запрос.
      * @param dateFrom Дата публикации ОТ.
      * @param dateTo Дата публикации ДО.
      * @param offset Отступ от начала списка.
      * @param itemPerPage Количество элементов на страницу.
+     * @param after Курсор последней полученной публикации (поле next предыдущего ответа).
+     *              Если указан, offset не используется, а выдача упорядочена по времени.
      * @return 200 - успешное получение публикации
      */
     @GetMapping
-    public ServiceResponse<AbstractResponse> findPosts(
-            @RequestParam String text, @RequestParam long dateFrom,
-            @RequestParam long dateTo,@RequestParam int offset,
-            @RequestParam int itemPerPage) {
-        List<PostResponse> posts = postService.findPosts(
-                text, dateFrom, dateTo, offset, itemPerPage);
-        PostListResponse postListResponse = new PostListResponse(posts);
-        return new ServiceResponse(
-                posts.size(), offset, itemPerPage, postListResponse);
+    public ResponseEntity<ServiceResponseDataList<PostResponse>> findPosts(
+            @RequestParam(required = false) String text,
+            @RequestParam(required = false) Long dateFrom,
+            @RequestParam(required = false) Long dateTo,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "20") int itemPerPage,
+            @RequestParam(required = false) String after) {
+        if (after == null) {
+            return ResponseEntity.ok(postService.findPosts(
+                    text, dateFrom, dateTo, offset, itemPerPage));
+        }
+        PageCursor cursor;
+        try {
+            cursor = PageCursor.parse(after);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ServiceResponseDataList<>(e.getMessage()));
+        }
+        return ResponseEntity.ok(postService.findPostsAfter(
+                text, dateFrom, dateTo, cursor, itemPerPage));
     }
 
     /**
@@ -1,18 +1,25 @@
 package sn.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import sn.api.requests.PersonEditRequest;
 import sn.api.requests.WallPostRequest;
 import sn.api.response.*;
 import sn.service.AccountService;
+import sn.service.PresenceService;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class ProfileController {
     private final AccountService accountService;
+    private final PresenceService presenceService;
+    @Value("${presence.bulk-max-ids}")
+    private int bulkMaxIds;
 
     //==================================================================================================================
 
@@ -70,6 +77,8 @@ public class ProfileController {
      * @param personId    - ID пользователя, со стены которого требуется получить записи.
      * @param offset      - Отступ от начала результирующего списка публикаций.
      * @param itemPerPage - Количество публикаций из результирующего списка, которые представлены для отображения.
+     * @param after       - Курсор последней полученной публикации (поле next предыдущего ответа).
+     *                    Если указан, offset не используется.
      * @return 200 - получение результирующего списка с публикациями на стене пользователя;
      * 400 - произошла ошибка; 401 - ошибка авторизации.
      */
@@ -77,9 +86,12 @@ public class ProfileController {
     public ResponseEntity<ServiceResponseDataList<WallPostResponse>> getWallPosts(
             @PathVariable(value = "id") long personId,
             @RequestParam(value = "offset", defaultValue = "0") int offset,
-            @RequestParam(value = "itemPerPage", defaultValue = "20") int itemPerPage
+            @RequestParam(value = "itemPerPage", defaultValue = "20") int itemPerPage,
+            @RequestParam(value = "after", required = false) String after
     ) {
-        return accountService.getWallPosts(personId, offset, itemPerPage);
+        return after == null ?
+                accountService.getWallPosts(personId, offset, itemPerPage) :
+                accountService.getWallPostsAfter(personId, after, itemPerPage);
     }
 
     /**
@@ -130,6 +142,25 @@ public class ProfileController {
         return accountService.findUsers(firstName, lastName, city, country, ageFrom, ageTo, offset, itemPerPage);
     }
 
+    /**
+     * Статус "в сети" и время последней активности нескольких пользователей.
+     * GET запрос /api/v1/users/activity
+     *
+     * @param ids - ID пользователей.
+     * @return 200 - статусы пользователей в порядке переданных ID;
+     * 400 - передано слишком много ID; 401 - ошибка авторизации.
+     */
+    @GetMapping("/activity")
+    public ResponseEntity<ServiceResponseDataList<UserActivityResponse>> getUsersActivity(
+            @RequestParam(value = "ids") List<Long> ids
+    ) {
+        if (ids.size() > bulkMaxIds) {
+            return ResponseEntity.badRequest().body(
+                    new ServiceResponseDataList<>(String.format("Too many ids, max %d", bulkMaxIds)));
+        }
+        return ResponseEntity.ok(new ServiceResponseDataList<>(presenceService.getActivities(ids)));
+    }
+
     /**
      * Блокировка пользователя.
      * PUT запрос /api/v1/users/block/{id}
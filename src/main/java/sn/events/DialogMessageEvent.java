@@ -0,0 +1,17 @@
+package sn.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import sn.api.response.MessageFullResponse;
+
+/**
+ * Событие изменения сообщения в диалоге.
+ * Публикуется MessageService и доставляется участникам диалога после фиксации транзакции.
+ */
+@Getter
+@RequiredArgsConstructor
+public class DialogMessageEvent {
+    private final long dialogId;
+    private final DialogMessageEventType type;
+    private final MessageFullResponse message;
+}
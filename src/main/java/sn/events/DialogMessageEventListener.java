@@ -0,0 +1,50 @@
+package sn.events;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sn.api.response.DialogEventResponse;
+import sn.model.enums.NotificationTypeCode;
+import sn.service.DialogMembershipCache;
+import sn.service.EventStreamRegistry;
+import sn.service.MessagePollService;
+import sn.service.NotificationPipeline;
+
+import java.util.Set;
+
+/**
+ * Доставка изменений сообщений участникам диалога через поток событий
+ * и ответ на ожидающие запросы новых сообщений; о новом сообщении создаются уведомления.
+ * Событие отправляется после фиксации транзакции, а вне транзакции - сразу.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DialogMessageEventListener {
+    private final DialogMembershipCache dialogMembershipCache;
+    private final EventStreamRegistry eventStreamRegistry;
+    private final MessagePollService messagePollService;
+    private final NotificationPipeline notificationPipeline;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDialogMessage(DialogMessageEvent event) {
+        try {
+            Set<Long> members = dialogMembershipCache.getMembers(event.getDialogId());
+            eventStreamRegistry.send(EventStreamRegistry.Channel.DIALOGS, members,
+                    event.getType().name().toLowerCase(),
+                    DialogEventResponse.builder()
+                            .dialogId(event.getDialogId())
+                            .message(event.getMessage())
+                            .build());
+            if (event.getType() == DialogMessageEventType.MESSAGE_SENT) {
+                messagePollService.onMessageSent(event.getDialogId(), event.getMessage());
+                notificationPipeline.submit(new NotificationEvent(NotificationTypeCode.MESSAGE, members,
+                        event.getMessage().getAuthorId(), event.getMessage().getId(),
+                        event.getMessage().getMessageText()));
+            }
+        } catch (RuntimeException e) {
+            log.error("dialog {} event {} was not delivered", event.getDialogId(), event.getType(), e);
+        }
+    }
+}
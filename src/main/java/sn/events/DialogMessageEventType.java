@@ -0,0 +1,11 @@
+package sn.events;
+
+/**
+ * Тип изменения сообщения в диалоге.
+ */
+public enum DialogMessageEventType {
+    MESSAGE_SENT,
+    MESSAGE_EDITED,
+    MESSAGE_REMOVED,
+    MESSAGE_READ
+}
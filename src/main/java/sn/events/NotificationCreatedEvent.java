@@ -0,0 +1,16 @@
+package sn.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import sn.api.response.NotificationResponse;
+
+/**
+ * Событие создания уведомления.
+ * Публикуется NotificationService и доставляется получателю после фиксации транзакции.
+ */
+@Getter
+@RequiredArgsConstructor
+public class NotificationCreatedEvent {
+    private final long personId;
+    private final NotificationResponse notification;
+}
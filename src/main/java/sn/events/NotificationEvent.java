@@ -0,0 +1,22 @@
+package sn.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import sn.model.enums.NotificationTypeCode;
+
+import java.util.Collection;
+
+/**
+ * Доменное событие, по которому получателям создаются уведомления.
+ * Публикуется сервисами (комментарий, лайк, заявка в друзья, сообщение) и после фиксации транзакции
+ * передаётся в NotificationPipeline; автору события уведомление не создаётся.
+ */
+@Getter
+@RequiredArgsConstructor
+public class NotificationEvent {
+    private final NotificationTypeCode type;
+    private final Collection<Long> recipientIds;
+    private final long authorId;
+    private final long entityId;
+    private final String info;
+}
@@ -0,0 +1,39 @@
+package sn.events;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sn.service.EventStreamRegistry;
+import sn.service.NotificationPipeline;
+import sn.service.NotificationService;
+
+import java.util.List;
+
+/**
+ * Создание уведомлений по доменным событиям и доставка новых уведомлений получателю через поток событий.
+ * Событие обрабатывается после фиксации транзакции, а вне транзакции - сразу.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationEventListener {
+    private final EventStreamRegistry eventStreamRegistry;
+    private final NotificationPipeline notificationPipeline;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationEvent(NotificationEvent event) {
+        notificationPipeline.submit(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationCreated(NotificationCreatedEvent event) {
+        try {
+            eventStreamRegistry.send(EventStreamRegistry.Channel.NOTIFICATIONS, List.of(event.getPersonId()),
+                    NotificationService.STREAM_EVENT_NAME,
+                    String.valueOf(event.getNotification().getId()), event.getNotification());
+        } catch (RuntimeException e) {
+            log.error("notification {} was not delivered", event.getNotification().getId(), e);
+        }
+    }
+}
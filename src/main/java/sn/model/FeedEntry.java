@@ -0,0 +1,40 @@
+package sn.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Class FeedEntry.
+ * Запись персональной ленты новостей: пост, доставленный читателю при публикации.
+ *
+ */
+
+@Entity
+@Table(name = "feed_timeline")
+@Getter
+@Setter
+public class FeedEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "reader_id")
+    private long readerId;
+
+    @Column(name = "post_id")
+    private long postId;
+
+    @Column(name = "author_id")
+    private long authorId;
+
+    @Column(name = "post_time", columnDefinition = "timestamp with time zone")
+    private LocalDateTime postTime;
+}
@@ -5,7 +5,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 import java.time.LocalDate;
@@ -52,12 +51,11 @@ public class Person {
     private boolean approved;
     @Column(name = "messages_permission")
     private String messagesPermission;
-    @UpdateTimestamp
-    @Column(name = "last_online_time", columnDefinition = "timestamp with time zone")
+    @Column(name = "last_online_time", columnDefinition = "timestamp with time zone", updatable = false)
     private LocalDateTime lastOnlineTime;
     @Column(name = "is_blocked")
     private boolean blocked;
-    @Column(name = "is_online")
+    @Column(name = "is_online", updatable = false)
     private boolean online;
     @Column(name = "is_deleted")
     private boolean deleted;
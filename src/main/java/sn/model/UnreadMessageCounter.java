@@ -0,0 +1,36 @@
+package sn.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Class UnreadMessageCounter.
+ * Количество непрочитанных сообщений участника в диалоге.
+ *
+ */
+
+@Entity
+@Table(name = "message_unread")
+@Getter
+@Setter
+public class UnreadMessageCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "person_id")
+    private long personId;
+
+    @Column(name = "dialog_id")
+    private long dialogId;
+
+    @Column(name = "unread_count")
+    private int unreadCount;
+}
@@ -0,0 +1,28 @@
+package sn.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Class UnreadNotificationCounter.
+ * Количество непрочитанных уведомлений пользователя.
+ *
+ */
+
+@Entity
+@Table(name = "notification_unread")
+@Getter
+@Setter
+public class UnreadNotificationCounter {
+
+    @Id
+    @Column(name = "person_id")
+    private long personId;
+
+    @Column(name = "unread_count")
+    private int unreadCount;
+}
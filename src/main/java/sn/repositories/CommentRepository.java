@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import sn.model.Comment;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,4 +25,7 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     @Query("SELECT c FROM Comment c WHERE c.post.id = :postId")
     List<Comment> findAllCommentsByPostId(@Param("postId") long postId, Sort sort);
+
+    @Query("SELECT c FROM Comment c WHERE c.post.id IN :postIds")
+    List<Comment> findAllCommentsByPostIds(@Param("postIds") Collection<Long> postIds, Sort sort);
 }
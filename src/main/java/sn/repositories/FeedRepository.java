@@ -0,0 +1,161 @@
+package sn.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import sn.model.FeedEntry;
+import sn.model.Post;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Interface FeedRepository.
+ * Data layer for FeedEntry entity.
+ *
+ * @version 1.0
+ * @see org.springframework.data.jpa.repository.JpaRepository
+ * @see sn.model.FeedEntry
+ */
+
+@Repository
+public interface FeedRepository extends JpaRepository<FeedEntry, Long> {
+
+    /**
+     * Метод fanOut. Раскладывает пост по лентам автора и всех его подписчиков одним запросом.
+     * Подписчики - друзья автора и пользователи, подписанные на него (статус SUBSCRIBED).
+     *
+     * @param postId   - идентификатор поста
+     * @param authorId - автор поста
+     * @param postTime - время публикации поста
+     * @return количество лент, в которые попал пост
+     */
+    @Modifying
+    @Query(value = "INSERT INTO feed_timeline (reader_id, post_id, author_id, post_time)"
+        + " SELECT :authorId, :postId, :authorId, :postTime"
+        + " UNION"
+        + " SELECT CASE WHEN f.src_person_id = :authorId THEN f.dst_person_id ELSE f.src_person_id END,"
+        + " :postId, :authorId, :postTime FROM friendship f"
+        + " WHERE (f.src_person_id = :authorId AND f.status = 'FRIEND')"
+        + " OR (f.dst_person_id = :authorId AND f.status IN ('FRIEND', 'SUBSCRIBED'))"
+        + " ON CONFLICT (reader_id, post_id) DO NOTHING",
+        nativeQuery = true)
+    int fanOut(@Param("postId") long postId,
+               @Param("authorId") long authorId,
+               @Param("postTime") LocalDateTime postTime);
+
+    /**
+     * Метод backfill. Добавляет в ленту читателя последние посты автора, на которого он подписался.
+     *
+     * @param readerId - читатель ленты
+     * @param authorId - автор, на которого подписался читатель
+     * @param limit    - количество последних постов автора
+     * @return количество добавленных записей
+     */
+    @Modifying
+    @Query(value = "INSERT INTO feed_timeline (reader_id, post_id, author_id, post_time)"
+        + " SELECT :readerId, p.id, p.author_id, p.time FROM posts p"
+        + " WHERE p.author_id = :authorId AND p.is_deleted = false"
+        + " ORDER BY p.time DESC, p.id DESC LIMIT :limit"
+        + " ON CONFLICT (reader_id, post_id) DO NOTHING",
+        nativeQuery = true)
+    int backfill(@Param("readerId") long readerId,
+                 @Param("authorId") long authorId,
+                 @Param("limit") int limit);
+
+    /**
+     * Метод purge. Удаляет из ленты читателя посты автора, от которого он отписался.
+     *
+     * @param readerId - читатель ленты
+     * @param authorId - автор, от которого отписался читатель
+     * @return количество удалённых записей
+     */
+    @Modifying
+    @Query(value = "DELETE FROM feed_timeline WHERE reader_id = :readerId AND author_id = :authorId",
+        nativeQuery = true)
+    int purge(@Param("readerId") long readerId, @Param("authorId") long authorId);
+
+    /**
+     * Метод markCelebrity. Запоминает, что посты автора больше не раскладываются по лентам подписчиков.
+     * Отсчёт ведётся с последнего сохранённого поста автора: он мог не попасть в ленты подписчиков.
+     *
+     * @param authorId - популярный автор
+     */
+    @Modifying
+    @Query(value = "INSERT INTO feed_celebrity (author_id, first_post_id)"
+        + " SELECT :authorId, coalesce(max(p.id), 0) FROM posts p WHERE p.author_id = :authorId"
+        + " ON CONFLICT (author_id) DO NOTHING",
+        nativeQuery = true)
+    void markCelebrity(@Param("authorId") long authorId);
+
+    /**
+     * Метод findCelebrityIds. Авторы, посты которых сейчас не раскладываются по лентам подписчиков.
+     */
+    @Query(value = "SELECT author_id FROM feed_celebrity", nativeQuery = true)
+    List<Number> findCelebrityIds();
+
+    /**
+     * Метод demoteCelebrity. Автор перестал быть популярным: посты, опубликованные им за время популярности,
+     * раскладываются по лентам его подписчиков, а отметка о популярности удаляется.
+     *
+     * @param authorId - автор
+     * @return количество добавленных записей
+     */
+    @Modifying
+    @Query(value = "WITH demoted AS (DELETE FROM feed_celebrity WHERE author_id = :authorId"
+        + " RETURNING first_post_id)"
+        + " INSERT INTO feed_timeline (reader_id, post_id, author_id, post_time)"
+        + " SELECT DISTINCT CASE WHEN f.src_person_id = :authorId THEN f.dst_person_id ELSE f.src_person_id END,"
+        + " p.id, p.author_id, p.time FROM demoted d"
+        + " JOIN posts p ON p.author_id = :authorId AND p.id >= d.first_post_id AND p.is_deleted = false"
+        + " JOIN friendship f ON (f.src_person_id = :authorId AND f.status = 'FRIEND')"
+        + " OR (f.dst_person_id = :authorId AND f.status IN ('FRIEND', 'SUBSCRIBED'))"
+        + " ON CONFLICT (reader_id, post_id) DO NOTHING",
+        nativeQuery = true)
+    int demoteCelebrity(@Param("authorId") long authorId);
+
+    /**
+     * Метод findFeed. Первая страница ленты читателя (или страница по смещению).
+     *
+     * @param readerId - читатель ленты
+     * @param query    - текст для поиска в заголовке и тексте поста, пустая строка - без фильтра
+     * @param offset   - отступ от начала ленты
+     * @param limit    - количество записей
+     */
+    @Query(value = "SELECT p.* FROM feed_timeline f JOIN posts p ON p.id = f.post_id"
+        + " WHERE f.reader_id = :readerId AND f.post_time <= now() AND p.is_deleted = false"
+        + " AND (:query = '' OR p.title ILIKE concat('%', :query, '%')"
+        + " OR p.post_text ILIKE concat('%', :query, '%'))"
+        + " ORDER BY f.post_time DESC, f.post_id DESC"
+        + " LIMIT :limit OFFSET :offset",
+        nativeQuery = true)
+    List<Post> findFeed(@Param("readerId") long readerId,
+                        @Param("query") String query,
+                        @Param("offset") int offset,
+                        @Param("limit") int limit);
+
+    /**
+     * Метод findFeedAfter. Страница ленты читателя, начиная после курсора (time, id).
+     *
+     * @param readerId - читатель ленты
+     * @param query    - текст для поиска в заголовке и тексте поста, пустая строка - без фильтра
+     * @param time     - время последнего полученного поста
+     * @param postId   - идентификатор последнего полученного поста
+     * @param limit    - количество записей
+     */
+    @Query(value = "SELECT p.* FROM feed_timeline f JOIN posts p ON p.id = f.post_id"
+        + " WHERE f.reader_id = :readerId AND f.post_time <= now() AND p.is_deleted = false"
+        + " AND (f.post_time, f.post_id) < (:time, :postId)"
+        + " AND (:query = '' OR p.title ILIKE concat('%', :query, '%')"
+        + " OR p.post_text ILIKE concat('%', :query, '%'))"
+        + " ORDER BY f.post_time DESC, f.post_id DESC"
+        + " LIMIT :limit",
+        nativeQuery = true)
+    List<Post> findFeedAfter(@Param("readerId") long readerId,
+                             @Param("query") String query,
+                             @Param("time") LocalDateTime time,
+                             @Param("postId") long postId,
+                             @Param("limit") int limit);
+}
@@ -2,8 +2,13 @@ package sn.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import sn.model.Friendship;
+import sn.model.enums.FriendshipStatusCode;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface FriendshipRepository extends JpaRepository<Friendship, Long> {
@@ -48,6 +53,46 @@ public interface FriendshipRepository extends JpaRepository<Friendship, Long> {
         nativeQuery = true)
     Friendship getFriendship(long id, long friendId, String status);
 
-}
+    /**
+     * Метод getFollowersCount. Число подписчиков пользователя: друзья и подписанные на него пользователи
+     *
+     * @param id - пользователь
+     */
 
+    @Query(value = "SELECT COUNT(*) FROM friendship"
+        + " WHERE (dst_person_id = ?1 AND status IN ('FRIEND', 'SUBSCRIBED'))"
+        + " OR (src_person_id = ?1 AND status = 'FRIEND')",
+        nativeQuery = true)
+    int getFollowersCount(long id);
 
+    /**
+     * Метод findPopularPersonIds. Пользователи, число подписчиков которых превышает порог
+     *
+     * @param threshold - порог числа подписчиков
+     */
+
+    @Query(value = "SELECT author_id FROM ("
+        + " SELECT dst_person_id AS author_id FROM friendship WHERE status IN ('FRIEND', 'SUBSCRIBED')"
+        + " UNION ALL"
+        + " SELECT src_person_id AS author_id FROM friendship WHERE status = 'FRIEND') followers"
+        + " GROUP BY author_id HAVING COUNT(*) > :threshold",
+        nativeQuery = true)
+    List<Number> findPopularPersonIds(@Param("threshold") long threshold);
+
+    /**
+     * Метод findFollowedAmong. Из указанных пользователей выбрать тех, на кого подписан читатель
+     *
+     * @param readerId  - читатель
+     * @param authorIds - проверяемые пользователи
+     * @param statuses  - статусы подписки (друг или подписчик)
+     * @param friend    - статус дружбы
+     */
+
+    @Query("SELECT CASE WHEN f.srcPerson = :readerId THEN f.dstPerson ELSE f.srcPerson END FROM Friendship f"
+        + " WHERE (f.srcPerson = :readerId AND f.dstPerson IN :authorIds AND f.status IN :statuses)"
+        + " OR (f.dstPerson = :readerId AND f.srcPerson IN :authorIds AND f.status = :friend)")
+    List<Long> findFollowedAmong(@Param("readerId") long readerId,
+                                 @Param("authorIds") Collection<Long> authorIds,
+                                 @Param("statuses") Collection<FriendshipStatusCode> statuses,
+                                 @Param("friend") FriendshipStatusCode friend);
+}
@@ -1,11 +1,15 @@
 package sn.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import sn.model.Like;
+import sn.model.enums.LikeType;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -25,4 +29,33 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     Long findLikeId(@Param("id") long id,
                     @Param("itemId") long itemId,
                     @Param("likeType") String type);
+
+    @Query(value = "SELECT count(*) FROM likes WHERE item_id = :itemId AND like_type = :likeType", nativeQuery = true)
+    long countLikes(@Param("itemId") long itemId,
+                    @Param("likeType") String likeType);
+
+    @Query("SELECT l.id, l.person.id FROM Like l WHERE l.itemId = :itemId AND l.likeType = :likeType"
+            + " AND l.id < :likeId ORDER BY l.id DESC")
+    List<Object[]> findUsersOfLikeAfter(@Param("itemId") long itemId,
+                                        @Param("likeType") LikeType likeType,
+                                        @Param("likeId") long likeId,
+                                        Pageable pageable);
+
+    @Query("SELECT l.likeType, l.itemId FROM Like l WHERE l.person.id = :id AND l.itemId IN :itemIds")
+    List<Object[]> findLikedItems(@Param("id") long id,
+                                  @Param("itemIds") Collection<Long> itemIds);
+
+    @Modifying
+    @Query(value = "INSERT INTO likes (person_id, item_id, like_type, time) VALUES (:id, :itemId, :likeType, now())"
+            + " ON CONFLICT (person_id, item_id, like_type) DO NOTHING", nativeQuery = true)
+    int insertLike(@Param("id") long id,
+                   @Param("itemId") long itemId,
+                   @Param("likeType") String type);
+
+    @Modifying
+    @Query(value = "DELETE FROM likes WHERE person_id = :id AND item_id = :itemId AND like_type = :likeType",
+            nativeQuery = true)
+    int deleteLike(@Param("id") long id,
+                   @Param("itemId") long itemId,
+                   @Param("likeType") String type);
 }
@@ -1,9 +1,85 @@
 package sn.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import sn.model.Message;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
+
+    /**
+     * Метод markRead. Помечает сообщение прочитанным, если оно ещё не прочитано.
+     *
+     * @param messageId - ID сообщения
+     * @return 1, если статус изменён этим вызовом, иначе 0
+     */
+    @Modifying
+    @Query(value = "UPDATE messages SET read_status = 'READ' WHERE id = :messageId AND read_status = 'SENT'",
+            nativeQuery = true)
+    int markRead(@Param("messageId") long messageId);
+
+    /**
+     * Метод findDialogMessages. Страница сообщений диалога по смещению в порядке "сначала новые".
+     *
+     * @param dialogId - ID диалога
+     * @param query    - текст для поиска в сообщении, пустая строка - без фильтра
+     * @param offset   - отступ от начала списка
+     * @param limit    - количество записей
+     */
+    @Query(value = "SELECT m.* FROM messages m WHERE m.dialog_id = :dialogId"
+            + " AND (:query = '' OR m.message_text LIKE concat('%', :query, '%'))"
+            + " ORDER BY m.time DESC, m.id DESC"
+            + " LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<Message> findDialogMessages(@Param("dialogId") long dialogId,
+                                     @Param("query") String query,
+                                     @Param("offset") int offset,
+                                     @Param("limit") int limit);
+
+    /**
+     * Метод countDialogMessages. Количество сообщений диалога, подходящих под фильтр.
+     *
+     * @param dialogId - ID диалога
+     * @param query    - текст для поиска в сообщении, пустая строка - без фильтра
+     */
+    @Query("SELECT COUNT(m) FROM Message m WHERE m.dialog.id = :dialogId"
+            + " AND (:query = '' OR m.messageText LIKE concat('%', :query, '%'))")
+    long countDialogMessages(@Param("dialogId") long dialogId, @Param("query") String query);
+
+    /**
+     * Метод findDialogMessagesAfter. Страница сообщений диалога, начиная после курсора (time, id).
+     *
+     * @param dialogId  - ID диалога
+     * @param query     - текст для поиска в сообщении, пустая строка - без фильтра
+     * @param time      - время сообщения курсора
+     * @param messageId - ID сообщения курсора
+     */
+
+    @Query("SELECT m FROM Message m WHERE m.dialog.id = :dialogId"
+            + " AND (m.time < :time OR (m.time = :time AND m.id < :messageId))"
+            + " AND (:query = '' OR m.messageText LIKE concat('%', :query, '%'))"
+            + " ORDER BY m.time DESC, m.id DESC")
+    List<Message> findDialogMessagesAfter(@Param("dialogId") long dialogId,
+                                          @Param("query") String query,
+                                          @Param("time") LocalDateTime time,
+                                          @Param("messageId") long messageId,
+                                          Pageable pageable);
+
+    /**
+     * Метод findDialogMessagesSince. Сообщения диалога, созданные после указанного, в порядке отправки.
+     *
+     * @param dialogId  - ID диалога
+     * @param messageId - ID последнего полученного сообщения
+     */
+    @Query("SELECT m FROM Message m WHERE m.dialog.id = :dialogId AND m.id > :messageId ORDER BY m.id")
+    List<Message> findDialogMessagesSince(@Param("dialogId") long dialogId,
+                                          @Param("messageId") long messageId,
+                                          Pageable pageable);
 }
@@ -3,10 +3,13 @@ package sn.repositories;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import sn.model.Notification;
 import sn.model.Person;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -15,7 +18,24 @@ import java.util.List;
  */
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
-    Page<Notification> findByToWhomAndIsReadedFalse(Person userReceiver, Pageable pageable);
+    Page<Notification> findByToWhomAndIsReadedFalseAndSentTimeGreaterThanEqual(Person userReceiver,
+                                                                              LocalDateTime since,
+                                                                              Pageable pageable);
 
-    List<Notification> findAllByToWhomAndIsReadedFalse(Person userReceiver);
+    @Query("SELECT n FROM Notification n WHERE n.toWhom = :person AND n.isReaded = false"
+            + " AND n.sentTime >= :since"
+            + " AND (n.sentTime < :time OR (n.sentTime = :time AND n.id < :id))"
+            + " ORDER BY n.sentTime DESC, n.id DESC")
+    List<Notification> findUnreadAfter(@Param("person") Person userReceiver,
+                                       @Param("time") LocalDateTime time,
+                                       @Param("id") long id,
+                                       @Param("since") LocalDateTime since,
+                                       Pageable pageable);
+
+    @Query("SELECT n FROM Notification n WHERE n.toWhom.id = :personId AND n.isReaded = false"
+            + " AND n.sentTime >= :since AND n.id > :id ORDER BY n.id")
+    List<Notification> findUnreadSince(@Param("personId") long personId,
+                                       @Param("id") long id,
+                                       @Param("since") LocalDateTime since,
+                                       Pageable pageable);
 }
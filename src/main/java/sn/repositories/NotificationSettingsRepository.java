@@ -10,6 +10,7 @@ import sn.model.NotificationType;
 import sn.model.Person;
 import sn.model.enums.NotificationTypeCode;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +26,8 @@ public interface NotificationSettingsRepository extends CrudRepository<Notificat
                    "WHERE ns.owner=:owner and ns.type.code=:typeCode")
     Optional<NotificationSettings> findByOwnerAndType(@Param("owner") Person person,
                                                       @Param("typeCode") NotificationTypeCode typeCode);
+
+    @Query("SELECT ns.owner.id, ns.type.code FROM NotificationSettings ns"
+            + " WHERE ns.owner.id IN :ownerIds AND ns.enable = false")
+    List<Object[]> findDisabledTypes(@Param("ownerIds") Collection<Long> ownerIds);
 }
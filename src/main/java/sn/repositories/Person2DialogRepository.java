@@ -6,6 +6,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import sn.model.Person2Dialog;
 
+import java.util.List;
+
 @Repository
 public interface Person2DialogRepository extends JpaRepository<Person2Dialog, Long> {
 
@@ -15,6 +17,18 @@ public interface Person2DialogRepository extends JpaRepository<Person2Dialog, Lo
             @Param("dialogId") long dialogId
     );
 
+    @Query("SELECT COUNT(pd) > 0 FROM Person2Dialog pd WHERE pd.person.id = :personId AND pd.dialog.id = :dialogId")
+    boolean exists(
+            @Param("personId") long personId,
+            @Param("dialogId") long dialogId
+    );
+
+    @Query("SELECT pd FROM Person2Dialog pd WHERE pd.person.id = :personId")
+    List<Person2Dialog> findAllByPersonId(@Param("personId") long personId);
+
+    @Query("SELECT pd.person.id FROM Person2Dialog pd WHERE pd.dialog.id = :dialogId")
+    List<Long> findPersonIdsByDialogId(@Param("dialogId") long dialogId);
+
     @Query("delete from Person2Dialog pd WHERE pd.person.id = :personId AND pd.dialog.id = :dialogId")
     void deleleByPersonIdAndDialogId(@Param("personId") long personId, @Param("dialogId") long dialogId);
 
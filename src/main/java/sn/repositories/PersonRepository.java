@@ -9,6 +9,8 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Repository;
 import sn.model.Person;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,6 +37,12 @@ public interface PersonRepository extends JpaRepository<Person, Long> {
     @Query("SELECT COUNT(p) FROM Person p")
     int getTotalCountUsers();
 
+    /**
+     * Оценка количества пользователей по статистике планировщика (без просмотра таблицы).
+     */
+    @Query(value = "SELECT CAST(reltuples AS bigint) FROM pg_class WHERE relname = 'person'", nativeQuery = true)
+    long getEstimatedCountUsers();
+
     /**
      * Метод findFriends. Нахождение друзей пользователя
      *
@@ -65,6 +73,36 @@ public interface PersonRepository extends JpaRepository<Person, Long> {
         @Param("itemPerPage") int itemPerPage,
         @Param("name") String name);
 
+    /**
+     * Метод findFriendsAfter. Нахождение друзей пользователя по курсору (reg_date, id).
+     * Друзья без даты регистрации идут последними: вместо даты для них используется noTime.
+     *
+     * @param id          - пользователь
+     * @param time        - дата регистрации последнего полученного друга
+     * @param personId    - идентификатор последнего полученного друга
+     * @param itemPerPage - Количество пользователей, которые представлены для отображения.
+     * @param name        - характерное имя или часть именни для поиска
+     * @param noTime      - дата, подставляемая вместо пустой даты регистрации
+     * @return список Person или пустой список, если друзей нет
+     */
+
+    @Query(value = "SELECT person.* FROM person "
+        + "JOIN friendship ON (friendship.src_person_id = :id AND friendship.dst_person_id = person.id) "
+        + "OR (friendship.dst_person_id = :id AND friendship.src_person_id = person.id) "
+        + "WHERE status = 'FRIEND' "
+        + "AND (first_name LIKE %:name% OR last_name LIKE %:name%) "
+        + "AND (COALESCE(person.reg_date, :noTime), person.id) < (:time, :personId) "
+        + "ORDER BY COALESCE(person.reg_date, :noTime) DESC, person.id DESC "
+        + "LIMIT :itemPerPage"
+        , nativeQuery = true)
+    List<Person> findFriendsAfter(
+        @Param("id") long id,
+        @Param("time") LocalDateTime time,
+        @Param("personId") long personId,
+        @Param("itemPerPage") int itemPerPage,
+        @Param("name") String name,
+        @Param("noTime") LocalDateTime noTime);
+
     /**
      * Метод findRequests. Нахождение заявок в друзья
      *
@@ -117,4 +155,13 @@ public interface PersonRepository extends JpaRepository<Person, Long> {
         + "LIMIT :itemPerPage OFFSET :offset"
         , nativeQuery = true)
     List<Person> findRecommendedFriends(long id, String city, Integer offset, int itemPerPage);
+
+    /**
+     * Время последней активности пользователей.
+     *
+     * @param ids - ID пользователей
+     * @return пары (ID, время последней активности)
+     */
+    @Query("SELECT p.id, p.lastOnlineTime FROM Person p WHERE p.id IN :ids")
+    List<Object[]> findLastOnlineTimes(@Param("ids") Collection<Long> ids);
 }
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 import sn.model.Post;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,20 +23,88 @@ import java.util.List;
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
     String POST_TIME = "time";
+    String SEARCH_FILTER = " FROM posts p WHERE p.is_deleted = false"
+            + " AND p.time >= :dateFrom AND p.time <= :dateTo"
+            + " AND (:query = '' OR p.search_vector @@ plainto_tsquery('russian', :query))";
 
     @Query("SELECT p FROM Post p WHERE p.author.id = :personId")
     List<Post> findAllByPersonId(@Param("personId") long personId, Pageable pageable);
 
+    @Query("SELECT p FROM Post p WHERE p.author.id = :personId"
+            + " AND (p.time < :time OR (p.time = :time AND p.id < :postId))"
+            + " ORDER BY p.time DESC, p.id DESC")
+    List<Post> findAllByPersonIdAfter(@Param("personId") long personId,
+                                      @Param("time") LocalDateTime time,
+                                      @Param("postId") long postId,
+                                      Pageable pageable);
+
     @Query("SELECT count(p) FROM Post p WHERE p.author.id = :personId")
     int getTotalCountPostsByPersonId(@Param("personId") long personId);
 
-    @Query(value = "SELECT * FROM posts where posts.time < " +
-            ":dateTo and posts.time > :dateFrom and posts.text like " +
-            "concat('%',:query,'%')",
+    /**
+     * Метод searchPosts. Полнотекстовый поиск публикаций по заголовку и тексту.
+     * Результаты упорядочены по релевантности, затем по убыванию времени.
+     *
+     * @param query    - поисковый запрос, пустая строка - без фильтра по тексту
+     * @param dateFrom - дата публикации ОТ
+     * @param dateTo   - дата публикации ДО
+     * @param offset   - отступ от начала списка
+     * @param limit    - количество записей
+     */
+    @Query(value = "SELECT p.*" + SEARCH_FILTER
+            + " ORDER BY ts_rank(p.search_vector, plainto_tsquery('russian', :query)) DESC, p.time DESC, p.id DESC"
+            + " LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<Post> searchPosts(@Param("query") String query,
+                           @Param("dateFrom") LocalDateTime dateFrom,
+                           @Param("dateTo") LocalDateTime dateTo,
+                           @Param("offset") int offset,
+                           @Param("limit") int limit);
+
+    /**
+     * Метод searchPostsAfter. Полнотекстовый поиск публикаций, начиная после курсора (time, id).
+     * Результаты упорядочены по убыванию времени.
+     *
+     * @param query    - поисковый запрос, пустая строка - без фильтра по тексту
+     * @param dateFrom - дата публикации ОТ
+     * @param dateTo   - дата публикации ДО
+     * @param time     - время публикации курсора
+     * @param postId   - ID публикации курсора
+     * @param limit    - количество записей
+     */
+    @Query(value = "SELECT p.*" + SEARCH_FILTER
+            + " AND (p.time < :time OR (p.time = :time AND p.id < :postId))"
+            + " ORDER BY p.time DESC, p.id DESC"
+            + " LIMIT :limit",
+            nativeQuery = true)
+    List<Post> searchPostsAfter(@Param("query") String query,
+                                @Param("dateFrom") LocalDateTime dateFrom,
+                                @Param("dateTo") LocalDateTime dateTo,
+                                @Param("time") LocalDateTime time,
+                                @Param("postId") long postId,
+                                @Param("limit") int limit);
+
+    /**
+     * Метод countSearchPosts. Количество публикаций, найденных полнотекстовым поиском.
+     */
+    @Query(value = "SELECT count(*)" + SEARCH_FILTER, nativeQuery = true)
+    long countSearchPosts(@Param("query") String query,
+                          @Param("dateFrom") LocalDateTime dateFrom,
+                          @Param("dateTo") LocalDateTime dateTo);
+
+    @Query(value = "SELECT * FROM posts WHERE author_id = :authorId AND is_deleted = false"
+            + " ORDER BY time DESC, id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Post> findRecentByAuthor(@Param("authorId") long authorId, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM posts WHERE author_id IN :authorIds AND is_deleted = false AND time <= now()"
+            + " AND (time, id) < (:time, :postId)"
+            + " AND (:query = '' OR title ILIKE concat('%', :query, '%') OR post_text ILIKE concat('%', :query, '%'))"
+            + " ORDER BY time DESC, id DESC LIMIT :limit",
             nativeQuery = true)
-    List<Post> findAllByTextAndTime
-            (@Param("query") String text,
-             @Param("dateFrom") LocalDateTime dateFrom,
-             @Param("dateTo") LocalDateTime dateTo,
-             Pageable pageable);
+    List<Post> findByAuthorsBefore(@Param("authorIds") Collection<Long> authorIds,
+                                   @Param("query") String query,
+                                   @Param("time") LocalDateTime time,
+                                   @Param("postId") long postId,
+                                   @Param("limit") int limit);
 }
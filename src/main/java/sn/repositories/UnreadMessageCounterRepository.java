@@ -0,0 +1,82 @@
+package sn.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import sn.model.UnreadMessageCounter;
+
+/**
+ * Interface UnreadMessageCounterRepository.
+ * Data layer for UnreadMessageCounter entity.
+ *
+ * @see sn.model.UnreadMessageCounter
+ */
+
+@Repository
+public interface UnreadMessageCounterRepository extends JpaRepository<UnreadMessageCounter, Long> {
+
+    /**
+     * Метод increment. Увеличивает счётчик непрочитанных у всех участников диалога, кроме автора сообщения.
+     *
+     * @param dialogId - ID диалога
+     * @param authorId - ID автора сообщения
+     */
+    @Modifying
+    @Query(value = "INSERT INTO message_unread (person_id, dialog_id, unread_count)"
+        + " SELECT pd.person_id, pd.dialog_id, 1 FROM person2dialogs pd"
+        + " WHERE pd.dialog_id = :dialogId AND pd.person_id <> :authorId"
+        + " ON CONFLICT (person_id, dialog_id)"
+        + " DO UPDATE SET unread_count = message_unread.unread_count + 1",
+        nativeQuery = true)
+    int increment(@Param("dialogId") long dialogId, @Param("authorId") long authorId);
+
+    /**
+     * Метод decrement. Уменьшает счётчик непрочитанных у всех участников диалога, кроме автора сообщения.
+     *
+     * @param dialogId - ID диалога
+     * @param authorId - ID автора сообщения
+     */
+    @Modifying
+    @Query(value = "UPDATE message_unread SET unread_count = unread_count - 1"
+        + " WHERE dialog_id = :dialogId AND person_id <> :authorId AND unread_count > 0",
+        nativeQuery = true)
+    int decrement(@Param("dialogId") long dialogId, @Param("authorId") long authorId);
+
+    /**
+     * Метод getUnreadCount. Общее количество непрочитанных сообщений пользователя во всех диалогах.
+     *
+     * @param personId - ID пользователя
+     */
+    @Query("SELECT COALESCE(SUM(c.unreadCount), 0) FROM UnreadMessageCounter c WHERE c.personId = :personId")
+    long getUnreadCount(@Param("personId") long personId);
+
+    /**
+     * Метод reconcile. Пересчитывает счётчики по таблице сообщений и исправляет разошедшиеся значения.
+     *
+     * @return количество исправленных счётчиков
+     */
+    @Modifying
+    @Query(value = "INSERT INTO message_unread (person_id, dialog_id, unread_count)"
+        + " SELECT pd.person_id, pd.dialog_id, count(m.id) FROM person2dialogs pd"
+        + " LEFT JOIN messages m ON m.dialog_id = pd.dialog_id"
+        + " AND m.author_id <> pd.person_id AND m.read_status = 'SENT'"
+        + " GROUP BY pd.person_id, pd.dialog_id"
+        + " ON CONFLICT (person_id, dialog_id)"
+        + " DO UPDATE SET unread_count = excluded.unread_count"
+        + " WHERE message_unread.unread_count <> excluded.unread_count",
+        nativeQuery = true)
+    int reconcile();
+
+    /**
+     * Метод deleteOrphans. Удаляет счётчики участников, покинувших диалог.
+     *
+     * @return количество удалённых счётчиков
+     */
+    @Modifying
+    @Query(value = "DELETE FROM message_unread u WHERE NOT EXISTS (SELECT 1 FROM person2dialogs pd"
+        + " WHERE pd.person_id = u.person_id AND pd.dialog_id = u.dialog_id)",
+        nativeQuery = true)
+    int deleteOrphans();
+}
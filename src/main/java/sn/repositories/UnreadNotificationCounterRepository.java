@@ -0,0 +1,55 @@
+package sn.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import sn.model.UnreadNotificationCounter;
+
+/**
+ * Interface UnreadNotificationCounterRepository.
+ * Data layer for UnreadNotificationCounter entity.
+ *
+ * @see sn.model.UnreadNotificationCounter
+ */
+
+@Repository
+public interface UnreadNotificationCounterRepository extends JpaRepository<UnreadNotificationCounter, Long> {
+
+    /**
+     * Метод decrement. Уменьшает счётчик непрочитанных уведомлений пользователя.
+     *
+     * @param personId - ID пользователя
+     * @param count    - количество прочитанных уведомлений
+     */
+    @Modifying
+    @Query(value = "UPDATE notification_unread SET unread_count = greatest(unread_count - :count, 0)"
+        + " WHERE person_id = :personId",
+        nativeQuery = true)
+    int decrement(@Param("personId") long personId, @Param("count") int count);
+
+    /**
+     * Метод getUnreadCount. Количество непрочитанных уведомлений пользователя.
+     *
+     * @param personId - ID пользователя
+     */
+    @Query("SELECT COALESCE(SUM(c.unreadCount), 0) FROM UnreadNotificationCounter c WHERE c.personId = :personId")
+    long getUnreadCount(@Param("personId") long personId);
+
+    /**
+     * Метод reconcile. Пересчитывает счётчики по таблице уведомлений и исправляет разошедшиеся значения.
+     *
+     * @return количество исправленных счётчиков
+     */
+    @Modifying
+    @Query(value = "INSERT INTO notification_unread (person_id, unread_count)"
+        + " SELECT p.id, count(n.id) FROM person p"
+        + " LEFT JOIN notification n ON n.person_id = p.id AND n.is_readed = false"
+        + " GROUP BY p.id"
+        + " ON CONFLICT (person_id)"
+        + " DO UPDATE SET unread_count = excluded.unread_count"
+        + " WHERE notification_unread.unread_count <> excluded.unread_count",
+        nativeQuery = true)
+    int reconcile();
+}
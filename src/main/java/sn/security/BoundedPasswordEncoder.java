@@ -0,0 +1,98 @@
+package sn.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Кодировщик паролей BCrypt, выполняющий хэширование и проверку на отдельном ограниченном пуле потоков.
+ * Пул ограничивает число одновременных вычислений BCrypt, поэтому всплеск входов и регистраций
+ * не занимает все ядра процессора. Поток обработки запроса ждёт результат, но не дольше
+ * security.password.timeout-ms: если очередь пула заполнена или ожидание истекло, операция отклоняется
+ * с PasswordHashingOverloadException (код 429), и поток запроса освобождается.
+ * Сложность BCrypt задаётся security.password.strength; пароли с меньшей сложностью
+ * перехэшируются при успешном входе (upgradeEncoding).
+ */
+@Slf4j
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private final BCryptPasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    public BoundedPasswordEncoder(@Value("${security.password.strength}") int strength,
+                                  @Value("${security.password.threads}") int threads,
+                                  @Value("${security.password.queue-capacity}") int queueCapacity,
+                                  @Value("${security.password.timeout-ms}") long timeoutMs) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("password hashing rejected, queue size {}", executor.getQueue().size());
+            throw new PasswordHashingOverloadException();
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("password hashing timed out after {} ms, queue size {}", timeoutMs, executor.getQueue().size());
+            throw new PasswordHashingOverloadException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package sn.security;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -16,12 +19,20 @@ import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
+@Slf4j
 public class JwtTokenAuthFilter extends OncePerRequestFilter {
+    public static final String PERSON_ID_CLAIM = "person_id";
 
     private final JwtConfig jwtConfig;
+    private final JwtParser jwtParser;
+    private final VerifiedTokenCache verifiedTokenCache;
 
-    public JwtTokenAuthFilter(JwtConfig jwtConfig) {
+    public JwtTokenAuthFilter(JwtConfig jwtConfig, VerifiedTokenCache verifiedTokenCache) {
         this.jwtConfig = jwtConfig;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.jwtParser = Jwts.parserBuilder()
+            .setSigningKey(jwtConfig.getSecret().getBytes())
+            .build();
     }
 
     @Override
@@ -38,32 +49,50 @@ public class JwtTokenAuthFilter extends OncePerRequestFilter {
 
         String token = header.replace(jwtConfig.getPrefix(), "");
 
-        try {    // исключение может быть брошено, если, например, время действия токена истекло
-            // 4. Проверяем токен
-            Jws<Claims> claims = Jwts.parserBuilder()
-                .setSigningKey(jwtConfig.getSecret().getBytes())
-                .build()
-                .parseClaimsJws(token);
-
-            String username = claims.getBody().getSubject();
-
-            if (username != null) {
-                @SuppressWarnings("unchecked")
-                List<String> authorities = (List<String>) claims.getBody().get("authorities");
-
-                // 5. Создаем авторизированный объект
-                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                    username, null, authorities.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toList()));
+        // 4. Токен уже проверялся - берём пользователя из кэша
+        VerifiedTokenCache.VerifiedToken verified = verifiedTokenCache.get(token);
+        if (verified != null) {
+            authenticate(verified.getUsername(), verified.getPersonId(), verified.getAuthorities());
+            filterChain.doFilter(httpServletRequest, httpServletResponse);
+            return;
+        }
 
-                // 6. Аутентифицируем пользователя
-                SecurityContextHolder.getContext().setAuthentication(auth);
+        try {    // исключение может быть брошено, если, например, время действия токена истекло
+            // 5. Проверяем токен
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+
+            String username = claims.getSubject();
+            Object personIdClaim = claims.get(PERSON_ID_CLAIM);
+            Long personId = personIdClaim instanceof Number ? ((Number) personIdClaim).longValue() : null;
+
+            // токен без списка authorities не аутентифицирует пользователя
+            Object authorities = claims.get("authorities");
+
+            if (username != null && authorities instanceof List) {
+                List<GrantedAuthority> grantedAuthorities = ((List<?>) authorities).stream()
+                    .map(String::valueOf)
+                    .map(SimpleGrantedAuthority::new).collect(Collectors.toList());
+
+                authenticate(username, personId, grantedAuthorities);
+                if (claims.getExpiration() != null) {
+                    verifiedTokenCache.put(token, username, personId, grantedAuthorities,
+                        claims.getExpiration().getTime());
+                }
             }
 
-        } catch (Exception e) {
+        } catch (JwtException | IllegalArgumentException | ClassCastException e) {
             SecurityContextHolder.clearContext();
-            e.printStackTrace();
+            log.debug("invalid token: {}", e.getMessage());
         }
 
         filterChain.doFilter(httpServletRequest, httpServletResponse);
     }
+
+    private void authenticate(String username, Long personId, List<GrantedAuthority> authorities) {
+        // 6. Создаем авторизированный объект и аутентифицируем пользователя, ID пользователя - в details
+        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+            username, null, authorities);
+        auth.setDetails(personId);
+        SecurityContextHolder.getContext().setAuthentication(auth);
+    }
 }
@@ -20,6 +20,7 @@ import sn.api.response.ErrorResponse;
 import sn.api.response.LoginResponse;
 import sn.api.response.PersonResponse;
 import sn.api.response.PersonResponseWithToken;
+import sn.model.Person;
 import sn.repositories.PersonRepository;
 import sn.service.AccountService;
 
@@ -71,6 +72,10 @@ public class JwtUsernameAndPasswordAuthFilter extends UsernamePasswordAuthentica
             // 3. Атентификация пользователя менеджером аутентификации
             return authManager.authenticate(authToken);
 
+        } catch (PasswordHashingOverloadException e) {
+            // 4. Пул проверки паролей перегружен - отказываем, клиент повторит вход позже
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            return null;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -80,10 +85,12 @@ public class JwtUsernameAndPasswordAuthFilter extends UsernamePasswordAuthentica
     protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response,
         FilterChain chain, Authentication authResult) throws IOException, ServletException {
         long now = System.currentTimeMillis();
+        Person person = personRepository.findByEmail(authResult.getName()).orElse(null);
 
         @SuppressWarnings("deprecation")
         String token = Jwts.builder()
             .setSubject(authResult.getName())
+            .claim(JwtTokenAuthFilter.PERSON_ID_CLAIM, person == null ? null : person.getId())
             // Конвертируем в список строк(важно!)
             .claim("authorities", authResult.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority).collect(Collectors.toList()))
@@ -94,7 +101,7 @@ public class JwtUsernameAndPasswordAuthFilter extends UsernamePasswordAuthentica
 
         response.addHeader(jwtConfig.getHeader(), jwtConfig.getPrefix() + token);
 
-        enrichAuthenticationResponse(response, true, authResult.getName(), token);
+        enrichAuthenticationResponse(response, true, person, token);
     }
 
     private Key getSigningKey() {
@@ -109,11 +116,10 @@ public class JwtUsernameAndPasswordAuthFilter extends UsernamePasswordAuthentica
     }
 
     private void enrichAuthenticationResponse(HttpServletResponse response, boolean success,
-        String email, String token) {
+        Person person, String token) {
         try {
             if (success) {
-                PersonResponse personResponse =
-                    accountService.getPersonResponse(personRepository.findById(1L).orElse(null));
+                PersonResponse personResponse = accountService.getPersonResponse(person);
 
                 PersonResponseWithToken personResponseWithToken =
                     new PersonResponseWithToken(personResponse, jwtConfig.getPrefix() + token);
@@ -0,0 +1,16 @@
+package sn.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Очередь хэширования паролей переполнена или результат не получен вовремя, запрос отклоняется с кодом 429.
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class PasswordHashingOverloadException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public PasswordHashingOverloadException() {
+        super("Password hashing queue is full");
+    }
+}
@@ -10,7 +10,7 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.context.annotation.RequestScope;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -33,14 +33,20 @@ public class SecurityTokenConfig extends WebSecurityConfigurerAdapter {
     private final JwtConfig jwtConfig;
     private final PersonRepository personRepository;
     private final AccountService accountService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final PasswordEncoder passwordEncoder;
 
     public SecurityTokenConfig(JwtUserDetailsService userDetailsService, JwtConfig jwtConfig,
                                PersonRepository personRepository,
-                               @Lazy AccountService accountService) {
+                               @Lazy AccountService accountService,
+                               VerifiedTokenCache verifiedTokenCache,
+                               PasswordEncoder passwordEncoder) {
         this.userDetailsService = userDetailsService;
         this.jwtConfig = jwtConfig;
         this.personRepository = personRepository;
         this.accountService = accountService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.passwordEncoder = passwordEncoder;
     }
 
     @Override
@@ -55,7 +61,7 @@ public class SecurityTokenConfig extends WebSecurityConfigurerAdapter {
                 .and()
                 .authorizeRequests().antMatchers("/account/register", "/account/password/recovery").permitAll()
                 .and()
-                .addFilterBefore(new JwtTokenAuthFilter(jwtConfig), JwtUsernameAndPasswordAuthFilter.class)
+                .addFilterBefore(new JwtTokenAuthFilter(jwtConfig, verifiedTokenCache), JwtUsernameAndPasswordAuthFilter.class)
                 .addFilterAfter(new JwtUsernameAndPasswordAuthFilter(authenticationManager(), jwtConfig, personRepository, accountService), JwtTokenAuthFilter.class)
                 .authorizeRequests()
                 .antMatchers("/api/**").permitAll()
@@ -71,12 +77,7 @@ public class SecurityTokenConfig extends WebSecurityConfigurerAdapter {
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder());
-    }
-
-    @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder);
     }
 
     @Bean
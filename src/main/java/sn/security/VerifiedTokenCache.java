@@ -0,0 +1,126 @@
+package sn.security;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш уже проверенных JWT-токенов.
+ * Ключ - SHA-256 от токена, значение - имя пользователя, его ID и права из токена.
+ * Запись живёт до истечения срока действия токена; размер кэша ограничен, вытесняются давно не использованные токены.
+ */
+@Slf4j
+@Component
+public class VerifiedTokenCache {
+    private final Map<String, VerifiedToken> tokens;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VerifiedTokenCache(@Value("${security.jwt.cache.max-size}") int maxSize) {
+        this.tokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Поиск проверенного токена.
+     *
+     * @param token - токен из заголовка запроса
+     * @return данные токена или null, если токен не проверялся или его срок действия истёк
+     */
+    public VerifiedToken get(String token) {
+        String key = digest(token);
+        VerifiedToken verified;
+        synchronized (tokens) {
+            verified = tokens.get(key);
+            if (verified != null && verified.getExpiresAt() <= System.currentTimeMillis()) {
+                tokens.remove(key);
+                verified = null;
+            }
+        }
+        if (verified == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return verified;
+    }
+
+    /**
+     * Сохранение проверенного токена.
+     *
+     * @param token       - токен из заголовка запроса
+     * @param username    - имя пользователя из токена
+     * @param personId    - ID пользователя из токена, null для токенов без ID
+     * @param authorities - права пользователя из токена
+     * @param expiresAt   - время истечения срока действия токена, мс
+     */
+    public void put(String token, String username, Long personId, List<GrantedAuthority> authorities,
+                    long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        VerifiedToken verified = new VerifiedToken(username, personId, authorities, expiresAt);
+        String key = digest(token);
+        synchronized (tokens) {
+            tokens.put(key, verified);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.cache.stats-interval-ms}")
+    public void logStats() {
+        int size;
+        synchronized (tokens) {
+            tokens.values().removeIf(verified -> verified.getExpiresAt() <= System.currentTimeMillis());
+            size = tokens.size();
+        }
+        log.info("verified token cache: size={}, hits={}, misses={}", size, hits.sum(), misses.sum());
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Getter
+    public static class VerifiedToken {
+        private final String username;
+        private final Long personId;
+        private final List<GrantedAuthority> authorities;
+        private final long expiresAt;
+
+        public VerifiedToken(String username, Long personId, List<GrantedAuthority> authorities, long expiresAt) {
+            this.username = username;
+            this.personId = personId;
+            this.authorities = List.copyOf(authorities);
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import sn.api.requests.PersonEditRequest;
 import sn.api.requests.WallPostRequest;
 import sn.api.response.*;
@@ -19,6 +21,7 @@ import sn.model.Post;
 import sn.model.dto.account.UserRegistrationRequest;
 import sn.repositories.PersonRepository;
 import sn.utils.ErrorUtil;
+import sn.utils.PageCursor;
 import sn.utils.TimeUtil;
 
 import javax.persistence.EntityManager;
@@ -48,15 +51,21 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 public class AccountService {
+    private static final String CURRENT_USER_ATTRIBUTE = AccountService.class.getName() + ".currentUser";
 
     private final PersonRepository personRepository;
     private final PasswordEncoder passwordEncoder;
     private final Authentication authentication;
     private final MailSenderService mailSenderService;
     private final PostService postService;
-    private final CommentService commentService;
+    private final FeedService feedService;
+    private final WallPostAssembler wallPostAssembler;
+    private final PersonSnapshotCache personSnapshotCache;
+    private final PresenceService presenceService;
     @Value("${user.permissions.image}")
     private String userImagePermissions;
+    @Value("${user.search.estimate-total-above}")
+    private long estimateTotalAbove;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -86,11 +95,16 @@ public class AccountService {
                 .city(person.getCity())
                 .country(person.getCountry())
                 .messagesPermission(person.getMessagesPermission())
-                .lastOnlineTime(TimeUtil.getTimestampFromLocalDateTime(person.getLastOnlineTime()))
+                .lastOnlineTime(getLastOnlineTime(person))
                 .isBlocked(person.isBlocked())
                 .build();
     }
 
+    private long getLastOnlineTime(Person person) {
+        Long lastActivity = presenceService.getKnownLastActivity(person.getId());
+        return lastActivity != null ? lastActivity : TimeUtil.getTimestampFromLocalDateTime(person.getLastOnlineTime());
+    }
+
     /**
      * Метод register.
      * Регистрация нового пользователя.
@@ -115,6 +129,7 @@ public class AccountService {
         person.setPassword(passwordEncoder.encode(userRegistrationRequest.getPasswd1()));
         person.setEmail(userRegistrationRequest.getEmail());
         person.setMessagesPermission(userImagePermissions);
+        person.setLastOnlineTime(TimeUtil.now());
         personRepository.save(person);
         log.info("Person successfully registered");
         return true;
@@ -185,6 +200,7 @@ public class AccountService {
         Person person = personOpt.get();
         person.setEmail(newEmail);
         personRepository.save(person);
+        personSnapshotCache.invalidate(person.getId());
         log.info("Person email successfully changed.");
         return true;
     }
@@ -192,6 +208,9 @@ public class AccountService {
     /**
      * Метод findCurrentUser.
      * Получение текущего пользователя.
+     * Пользователь определяется по ID из токена и берётся из PersonSnapshotCache, в пределах запроса - запоминается.
+     * Возвращается снимок без коллекций, не связанный с сессией Hibernate; для изменения пользователя
+     * его нужно загрузить из базы.
      *
      * @return Person или null, если текущий пользователь не аутентифицирован.
      */
@@ -200,12 +219,44 @@ public class AccountService {
             log.warn("Anonymous user authenticated");
             return null;
         }
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            Object currentUser = requestAttributes.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (currentUser instanceof Person) {
+                return (Person) currentUser;
+            }
+        }
+        Person person = loadCurrentUser();
+        if (person != null && requestAttributes != null) {
+            requestAttributes.setAttribute(CURRENT_USER_ATTRIBUTE, person, RequestAttributes.SCOPE_REQUEST);
+        }
+        return person;
+    }
+
+    /**
+     * Метод loadCurrentUser.
+     * Получение снимка текущего пользователя по ID из токена, для токенов без ID - по почте.
+     *
+     * @return снимок пользователя или null, если пользователь не найден.
+     */
+    private Person loadCurrentUser() {
+        if (authentication.getDetails() instanceof Long) {
+            long personId = (Long) authentication.getDetails();
+            Person snapshot = personSnapshotCache.get(personId);
+            if (snapshot != null) {
+                return snapshot;
+            }
+            Optional<Person> personOpt = personRepository.findById(personId);
+            if (personOpt.isPresent()) {
+                return personSnapshotCache.put(personOpt.get());
+            }
+        }
         Optional<Person> personOpt = personRepository.findByEmail(authentication.getName());
         if (personOpt.isEmpty()) {
             log.warn("Person not found by email [{}].", authentication.getName());
             return null;
         }
-        return personOpt.get();
+        return personSnapshotCache.put(personOpt.get());
     }
 
     /**
@@ -266,7 +317,8 @@ public class AccountService {
      * @return 200 - пользователь успешно отредактирован; 401 - ошибка авторизации.
      */
     public ResponseEntity<ServiceResponse<AbstractResponse>> editUser(PersonEditRequest personEditRequest) {
-        Person person = findCurrentUser();
+        Person currentUser = findCurrentUser();
+        Person person = currentUser == null ? null : personRepository.findById(currentUser.getId()).orElse(null);
         if (person == null) {
             log.error("Unauthorized access");
             return ErrorUtil.unauthorized();
@@ -284,6 +336,7 @@ public class AccountService {
         person.setMessagesPermission(Strings.isNotEmpty(personEditRequest.getMessagesPermission()) ?
                 personEditRequest.getMessagesPermission() : userImagePermissions);
         person = personRepository.saveAndFlush(person);
+        personSnapshotCache.invalidate(person.getId());
         log.info("Update data for user with id {}.", person.getId());
         return ResponseEntity.ok(new ServiceResponse<>(getPersonResponse(person)));
     }
@@ -301,6 +354,7 @@ public class AccountService {
             return ErrorUtil.unauthorized();
         }
         personRepository.deleteById(person.getId());
+        personSnapshotCache.invalidate(person.getId());
         log.info("User with ID {} was deleted", person.getId());
         return ResponseEntity.ok(new ServiceResponse<>(ResponseDataMessage.ok()));
     }
@@ -340,27 +394,73 @@ public class AccountService {
             return ResponseEntity.badRequest()
                     .body(new ServiceResponseDataList<>("User with ID = " + personId + " not found"));
         }
-        List<WallPostResponse> wallPosts = new ArrayList<>();
         List<Post> posts = postService.findAllByPersonId(personId, offset, itemPerPage);
-        PersonResponse author = getPersonResponse(person);
-        for (Post post : posts) {
-            List<CommentResponse> comments = commentService.getCommentsByPostId(post.getId());
-            WallPostResponse wallPostResponse = postService.getExistsWallPost(post, author, comments);
-            wallPosts.add(wallPostResponse);
+        int total = postService.getTotalCountPostsByPersonId(personId);
+        return ResponseEntity.ok(getWallPostsPage(total, offset, itemPerPage, posts,
+                offset + posts.size() < total));
+    }
+
+    /**
+     * Получение записей на стене пользователя по курсору.
+     * Страница начинается сразу после записи, на которую указывает курсор, поэтому стоимость запроса
+     * не зависит от глубины прокрутки.
+     *
+     * @param personId    - ID пользователя, со стены которого требуется получить записи.
+     * @param after       - курсор "time,id" последней полученной записи (поле next предыдущего ответа);
+     *                    пустая строка - первая страница.
+     * @param itemPerPage - Количество публикаций, которые представлены для отображения.
+     * @return 200 - получение страницы с публикациями на стене пользователя;
+     * 400 - произошла ошибка; 401 - ошибка авторизации.
+     */
+    public ResponseEntity<ServiceResponseDataList<WallPostResponse>> getWallPostsAfter(long personId, String after,
+                                                                                       int itemPerPage) {
+        PageCursor cursor;
+        try {
+            cursor = PageCursor.parse(after);
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.badRequest().body(new ServiceResponseDataList<>(e.getMessage()));
+        }
+        if (!personRepository.existsById(personId)) {
+            log.error("User with ID = {} not found", personId);
+            return ResponseEntity.badRequest()
+                    .body(new ServiceResponseDataList<>("User with ID = " + personId + " not found"));
         }
+        int pageSize = Math.max(itemPerPage, 0);
+        List<Post> posts = postService.findAllByPersonIdAfter(personId, cursor, pageSize + 1);
+        boolean hasMore = posts.size() > pageSize;
+        List<Post> page = hasMore ? posts.subList(0, pageSize) : posts;
         int total = postService.getTotalCountPostsByPersonId(personId);
-        return ResponseEntity.ok(new ServiceResponseDataList<>(total, offset, itemPerPage, wallPosts));
+        return ResponseEntity.ok(getWallPostsPage(total, 0, itemPerPage, page, hasMore));
+    }
+
+    /**
+     * Формирование страницы записей на стене с курсором следующей страницы.
+     * Курсор выдаётся, только если после страницы есть ещё записи.
+     */
+    private ServiceResponseDataList<WallPostResponse> getWallPostsPage(int total, int offset, int itemPerPage,
+                                                                       List<Post> posts, boolean hasMore) {
+        List<WallPostResponse> wallPosts = wallPostAssembler.assemble(posts);
+        ServiceResponseDataList<WallPostResponse> response =
+                new ServiceResponseDataList<>(total, offset, itemPerPage, wallPosts);
+        if (hasMore && !posts.isEmpty()) {
+            Post last = posts.get(posts.size() - 1);
+            response.setNext(PageCursor.toToken(last.getTime(), last.getId()));
+        }
+        return response;
     }
 
     /**
      * Добавление публикации на стену пользователя.
      * Если дата публикации не указана или указана прошедшая дата, то устанавливаем текущий момент времени.
+     * Сохранение поста и раскладка его по лентам выполняются в одной транзакции.
      *
      * @param personId        - ID пользователя, который публикует записи.
      * @param publishDate     - Дата публикации, установленная пользователем.
      * @param wallPostRequest - тело запроса в формате JSON. Содержит данные о новой публикации.
      * @return 200 - запись готова к публикации к назначенному времени; 400 - произошла ошибка;
      */
+    @Transactional
     public ResponseEntity<ServiceResponse<AbstractResponse>> addWallPost(long personId, Long publishDate, WallPostRequest wallPostRequest) {
         Person person = personRepository.findById(personId).orElse(null);
         if (person == null) {
@@ -377,6 +477,7 @@ public class AccountService {
         String title = wallPostRequest.getTitle();
         String text = wallPostRequest.getPostText();
         Post post = postService.addPost(person, title, text, postTime);
+        feedService.publishPost(post);
         PersonResponse author = getPersonResponse(person);
         WallPostResponse newPost = postService.createNewWallPost(post, author);
         return ResponseEntity.ok(new ServiceResponse<>(newPost));
@@ -406,7 +507,7 @@ public class AccountService {
         List<PersonResponse> searchResult = personList.stream()
                 .map(this::getPersonResponse)
                 .collect(Collectors.toList());
-        int total = personRepository.getTotalCountUsers();
+        int total = (int) this.countUsersWithParameters(firstName, lastName, city, country, ageFrom, ageTo);
         return ResponseEntity.ok(new ServiceResponseDataList<>(total, offset, itemPerPage, searchResult));
     }
 
@@ -424,6 +525,7 @@ public class AccountService {
         }
         person.setBlocked(!person.isBlocked());
         personRepository.saveAndFlush(person);
+        personSnapshotCache.invalidate(personId);
         log.info("User with id {} changed lock status", person.getId());
         return ResponseEntity.ok(new ServiceResponse<>(ResponseDataMessage.ok()));
     }
@@ -447,12 +549,38 @@ public class AccountService {
         Root<Person> person = criteriaQuery.from(Person.class);
         criteriaQuery.where(createPredicateArray(criteriaBuilder, person, firstName, lastName, city, country,
                 ageFrom, ageTo));
+        criteriaQuery.orderBy(criteriaBuilder.asc(person.get("id")));
         TypedQuery<Person> searchQuery = entityManager.createQuery(criteriaQuery);
-        searchQuery.setFirstResult(pageable.first().getPageNumber());
+        searchQuery.setFirstResult((int) pageable.getOffset());
         searchQuery.setMaxResults(pageable.getPageSize());
         return searchQuery.getResultList();
     }
 
+    /**
+     * Метод countUsersWithParameters.
+     * Количество пользователей, подходящих под параметры запроса.
+     * Если параметры не указаны и пользователей больше порога user.search.estimate-total-above,
+     * возвращается оценка по статистике планировщика вместо точного подсчёта.
+     *
+     * @return количество найденных пользователей
+     */
+    public long countUsersWithParameters(String firstName, String lastName, String city, String country,
+                                         Integer ageFrom, Integer ageTo) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> countQuery = criteriaBuilder.createQuery(Long.class);
+        Root<Person> person = countQuery.from(Person.class);
+        Predicate[] predicates = createPredicateArray(criteriaBuilder, person, firstName, lastName, city, country,
+                ageFrom, ageTo);
+        if (predicates.length == 0 && estimateTotalAbove > 0) {
+            long estimate = personRepository.getEstimatedCountUsers();
+            if (estimate >= estimateTotalAbove) {
+                return estimate;
+            }
+        }
+        countQuery.select(criteriaBuilder.count(person)).where(predicates);
+        return entityManager.createQuery(countQuery).getSingleResult();
+    }
+
     /**
      * Метод createPredicateArray.
      * Построение массива условий запроса в базу данных.
@@ -0,0 +1,211 @@
+package sn.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.model.Post;
+import sn.repositories.FeedRepository;
+import sn.repositories.FriendshipRepository;
+import sn.repositories.PostRepository;
+import sn.utils.PageCursor;
+import sn.utils.TimeUtil;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+/**
+ * Класс CelebrityPostCache.
+ * Горячий кэш последних постов популярных авторов.
+ * Посты авторов, у которых подписчиков больше порога, не раскладываются по лентам подписчиков,
+ * а подмешиваются в ленту при чтении из этого кэша.
+ * В кэше хранятся только последние cached-posts постов автора; более старые посты читаются из таблицы posts.
+ * Популярные авторы отмечаются в таблице feed_celebrity: если после перезапуска автор уже не популярен,
+ * его посты за время популярности раскладываются по лентам подписчиков.
+ * Отрицательный ответ isCelebrity запоминается на negative-cache.ttl-ms, чтобы не считать подписчиков на каждый пост.
+ *
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class CelebrityPostCache {
+    private final FriendshipRepository friendshipRepository;
+    private final PostRepository postRepository;
+    private final FeedRepository feedRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long negativeTtlMillis;
+    private final Map<Long, Long> notCelebrityUntil;
+    private final ConcurrentHashMap<Long, NavigableSet<PageCursor>> postsByAuthor = new ConcurrentHashMap<>();
+    private final Set<Long> completeAuthors = ConcurrentHashMap.newKeySet();
+
+    @Value("${feed.celebrity.followers-threshold}")
+    private int followersThreshold;
+
+    @Value("${feed.celebrity.cached-posts}")
+    private int cachedPosts;
+
+    public CelebrityPostCache(FriendshipRepository friendshipRepository, PostRepository postRepository,
+                              FeedRepository feedRepository, PlatformTransactionManager transactionManager,
+                              @Value("${feed.celebrity.negative-cache.ttl-ms}") long negativeTtlMillis,
+                              @Value("${feed.celebrity.negative-cache.max-size}") int negativeMaxSize) {
+        this.friendshipRepository = friendshipRepository;
+        this.postRepository = postRepository;
+        this.feedRepository = feedRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.notCelebrityUntil = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > negativeMaxSize;
+            }
+        };
+    }
+
+    /**
+     * Заполнение кэша после старта приложения: находим популярных авторов и загружаем их последние посты.
+     * Авторы, отмеченные популярными ранее, но потерявшие подписчиков, возвращаются к раскладке по лентам.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<Number> authorIds = friendshipRepository.findPopularPersonIds(followersThreshold);
+        Set<Long> popular = authorIds.stream().map(Number::longValue).collect(Collectors.toSet());
+        for (Number celebrityId : feedRepository.findCelebrityIds()) {
+            if (!popular.contains(celebrityId.longValue())) {
+                Integer added = transactionTemplate.execute(status ->
+                        feedRepository.demoteCelebrity(celebrityId.longValue()));
+                log.info("Person {} is no longer popular, {} posts delivered to followers' feeds",
+                        celebrityId, added);
+            }
+        }
+        for (Number authorId : authorIds) {
+            transactionTemplate.executeWithoutResult(status -> feedRepository.markCelebrity(authorId.longValue()));
+            NavigableSet<PageCursor> posts = postsOf(authorId.longValue());
+            List<Post> recent = postRepository.findRecentByAuthor(authorId.longValue(), cachedPosts);
+            if (recent.size() < cachedPosts) {
+                completeAuthors.add(authorId.longValue());
+            }
+            recent.forEach(post -> add(posts, post));
+        }
+        log.info("Celebrity post cache warmed up for {} authors", authorIds.size());
+    }
+
+    /**
+     * Является ли автор популярным. Автор становится популярным, когда число подписчиков превышает порог.
+     * Вызывается в транзакции публикации поста: в ней же автор отмечается в таблице feed_celebrity.
+     *
+     * @param authorId - идентификатор автора
+     * @return true, если посты автора читаются из кэша, а не раскладываются по лентам
+     */
+    public boolean isCelebrity(long authorId) {
+        if (postsByAuthor.containsKey(authorId)) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (notCelebrityUntil) {
+            Long expiresAt = notCelebrityUntil.get(authorId);
+            if (expiresAt != null && expiresAt > now) {
+                return false;
+            }
+        }
+        if (friendshipRepository.getFollowersCount(authorId) > followersThreshold) {
+            feedRepository.markCelebrity(authorId);
+            postsOf(authorId);
+            synchronized (notCelebrityUntil) {
+                notCelebrityUntil.remove(authorId);
+            }
+            log.info("Person {} is now served from celebrity post cache", authorId);
+            return true;
+        }
+        synchronized (notCelebrityUntil) {
+            notCelebrityUntil.put(authorId, now + negativeTtlMillis);
+        }
+        return false;
+    }
+
+    /**
+     * Идентификаторы популярных авторов.
+     */
+    public Set<Long> getCelebrityIds() {
+        return postsByAuthor.keySet();
+    }
+
+    /**
+     * Добавление поста популярного автора в кэш.
+     *
+     * @param post - только что сохранённый пост
+     */
+    public void addPost(Post post) {
+        add(postsOf(post.getAuthor().getId()), post);
+    }
+
+    /**
+     * Ключи (time, id) опубликованных постов указанных авторов, идущих после курсора, в порядке "сначала новые".
+     * Если посты автора после курсора в кэше закончились, а в кэше хранятся не все его посты,
+     * недостающие ключи читаются из таблицы posts.
+     *
+     * @param authorIds - популярные авторы, на которых подписан читатель
+     * @param cursor    - курсор последнего полученного поста или null для первой страницы
+     * @param limit     - максимальное количество ключей
+     */
+    public List<PageCursor> findPosts(Collection<Long> authorIds, PageCursor cursor, int limit) {
+        LocalDateTime now = TimeUtil.now();
+        List<PageCursor> result = new ArrayList<>();
+        for (Long authorId : authorIds) {
+            NavigableSet<PageCursor> posts = postsByAuthor.get(authorId);
+            if (posts == null) {
+                continue;
+            }
+            int taken = 0;
+            for (PageCursor post : cursor == null ? posts : posts.tailSet(cursor, false)) {
+                if (taken >= limit) {
+                    break;
+                }
+                if (!post.getTime().isAfter(now)) {
+                    result.add(post);
+                    taken++;
+                }
+            }
+            if (taken < limit && !completeAuthors.contains(authorId)) {
+                PageCursor from = olderOf(cursor, posts.isEmpty() ? null : posts.last());
+                if (from == null) {
+                    from = PageCursor.FIRST;
+                }
+                postRepository.findByAuthorsBefore(List.of(authorId), "", from.getTime(), from.getId(), limit - taken)
+                        .forEach(post -> result.add(new PageCursor(post.getTime(), post.getId())));
+            }
+        }
+        result.sort(PageCursor.NEWEST_FIRST);
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    private NavigableSet<PageCursor> postsOf(long authorId) {
+        return postsByAuthor.computeIfAbsent(authorId, id -> new ConcurrentSkipListSet<>(PageCursor.NEWEST_FIRST));
+    }
+
+    private void add(NavigableSet<PageCursor> posts, Post post) {
+        posts.add(new PageCursor(post.getTime(), post.getId()));
+        while (posts.size() > cachedPosts) {
+            posts.pollLast();
+            completeAuthors.remove(post.getAuthor().getId());
+        }
+    }
+
+    private PageCursor olderOf(PageCursor first, PageCursor second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return PageCursor.NEWEST_FIRST.compare(first, second) >= 0 ? first : second;
+    }
+}
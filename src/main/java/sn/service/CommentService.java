@@ -14,8 +14,11 @@ import sn.model.Post;
 import sn.repositories.CommentRepository;
 import sn.utils.TimeUtil;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Класс CommentServiceImpl. Сервисный слой для Comment. Имплементирует CommentService.
@@ -54,23 +57,48 @@ public class CommentService {
     public List<CommentResponse> getCommentsByPostId(long postId) {
         Sort sort = Sort.by(Sort.Direction.ASC, CommentRepository.COMMENT_TIME);
         List<Comment> comments = commentRepository.findAllCommentsByPostId(postId, sort);
-        List<CommentResponse> commentResponses = new ArrayList<>();
+        return comments.stream()
+            .map(this::getCommentResponse)
+            .collect(Collectors.toList());
+    }
 
-        for (Comment comment : comments) {
-            CommentResponse commentResponse = new CommentResponse();
-            commentResponse.setId(comment.getId());
-            commentResponse.setPostId(comment.getPost().getId());
-            commentResponse.setAuthorId(comment.getAuthor().getId());
-            commentResponse.setCommentText(comment.getText());
-            commentResponse.setTime(TimeUtil.getTimestampFromLocalDateTime(comment.getTime()));
-            commentResponse.setBlocked(comment.isBlocked());
-            Comment parent = comment.getParent();
-            if (parent != null) {
-                commentResponse.setParentId(parent.getParent().getId());
-            }
+    /**
+     * Формирует комментарии сразу для нескольких постов одним запросом.
+     *
+     * @param postIds - идентификаторы постов, комментарии которых надо получить;
+     * @return - возвращает комментарии, сгруппированные по идентификатору поста.
+     */
+    public Map<Long, List<CommentResponse>> getCommentsByPostIds(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        Sort sort = Sort.by(Sort.Direction.ASC, CommentRepository.COMMENT_TIME);
+        List<Comment> comments = commentRepository.findAllCommentsByPostIds(postIds, sort);
+        return comments.stream()
+            .map(this::getCommentResponse)
+            .collect(Collectors.groupingBy(CommentResponse::getPostId));
+    }
 
-            commentResponses.add(commentResponse);
+    /**
+     * Формирует CommentResponse на основе комментария.
+     * Для автора, поста и родительского комментария используются только идентификаторы,
+     * поэтому связанные сущности не загружаются.
+     *
+     * @param comment - комментарий;
+     * @return - возвращает CommentResponse.
+     */
+    private CommentResponse getCommentResponse(Comment comment) {
+        CommentResponse commentResponse = new CommentResponse();
+        commentResponse.setId(comment.getId());
+        commentResponse.setPostId(comment.getPost().getId());
+        commentResponse.setAuthorId(comment.getAuthor().getId());
+        commentResponse.setCommentText(comment.getText());
+        commentResponse.setTime(TimeUtil.getTimestampFromLocalDateTime(comment.getTime()));
+        commentResponse.setBlocked(comment.isBlocked());
+        Comment parent = comment.getParent();
+        if (parent != null) {
+            commentResponse.setParentId(parent.getId());
         }
-        return commentResponses;
+        return commentResponse;
     }
 }
@@ -0,0 +1,114 @@
+package sn.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sn.repositories.Person2DialogRepository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Кэш участников диалогов.
+ * Для частых проверок участия (набор текста, активность собеседника) состав диалога загружается
+ * из базы один раз и дальше берётся из памяти. Запись живёт не дольше dialogs.membership-cache.ttl-ms
+ * и удаляется при изменении состава диалога.
+ * Каждое изменение состава получает новое поколение: состав, загруженный до изменения, в кэш не записывается.
+ */
+@Component
+public class DialogMembershipCache {
+    private final Person2DialogRepository person2DialogRepository;
+    private final long ttlMillis;
+    private final Map<Long, Members> members;
+    private final Map<Long, Long> generations;
+    private long lastGeneration;
+    private long evictedGeneration;
+
+    public DialogMembershipCache(Person2DialogRepository person2DialogRepository,
+                                 @Value("${dialogs.membership-cache.max-size}") int maxSize,
+                                 @Value("${dialogs.membership-cache.ttl-ms}") long ttlMillis) {
+        this.person2DialogRepository = person2DialogRepository;
+        this.ttlMillis = ttlMillis;
+        this.members = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Members> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.generations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                if (size() > maxSize) {
+                    evictedGeneration = Math.max(evictedGeneration, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Проверка, что пользователь является участником диалога.
+     *
+     * @param dialogId - ID диалога.
+     * @param personId - ID пользователя.
+     */
+    public boolean isMember(long dialogId, long personId) {
+        return getMembers(dialogId).contains(personId);
+    }
+
+    /**
+     * Участники диалога.
+     *
+     * @param dialogId - ID диалога.
+     * @return неизменяемое множество ID участников.
+     */
+    public Set<Long> getMembers(long dialogId) {
+        Members cached;
+        long loadGeneration;
+        synchronized (members) {
+            cached = members.get(dialogId);
+            loadGeneration = generationOf(dialogId);
+        }
+        if (cached == null || cached.expiresAt <= System.currentTimeMillis()) {
+            cached = new Members(Set.copyOf(person2DialogRepository.findPersonIdsByDialogId(dialogId)),
+                    System.currentTimeMillis() + ttlMillis);
+            synchronized (members) {
+                if (generationOf(dialogId) == loadGeneration) {
+                    members.put(dialogId, cached);
+                }
+            }
+        }
+        return cached.personIds;
+    }
+
+    /**
+     * Удаление состава диалога после его изменения.
+     *
+     * @param dialogId - ID диалога.
+     */
+    public void invalidate(long dialogId) {
+        synchronized (members) {
+            generations.put(dialogId, ++lastGeneration);
+            members.remove(dialogId);
+        }
+    }
+
+    /**
+     * Поколение состава диалога. Для вытесненных из учёта диалогов берётся наибольшее вытесненное поколение,
+     * поэтому поколение диалога никогда не возвращается к значению, прочитанному до его изменения.
+     */
+    private long generationOf(long dialogId) {
+        return generations.getOrDefault(dialogId, evictedGeneration);
+    }
+
+    private static final class Members {
+        private final Set<Long> personIds;
+        private final long expiresAt;
+
+        private Members(Set<Long> personIds, long expiresAt) {
+            this.personIds = personIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -6,6 +6,9 @@ import org.apache.logging.log4j.util.Strings;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import sn.api.requests.MessageSendRequest;
 import sn.api.response.*;
 import sn.controller.DialogController;
@@ -13,11 +16,11 @@ import sn.model.Dialog;
 import sn.model.Message;
 import sn.model.Person;
 import sn.model.Person2Dialog;
-import sn.model.enums.MessageStatus;
 import sn.repositories.DialogRepository;
 import sn.repositories.Person2DialogRepository;
 import sn.repositories.PersonRepository;
 import sn.utils.ErrorUtil;
+import sn.utils.PageCursor;
 import sn.utils.TimeUtil;
 
 import java.sql.Timestamp;
@@ -33,11 +36,16 @@ public class DialogService {
     private final PersonRepository personRepository;
     private final Person2DialogRepository person2DialogRepository;
     private final MessageService messageService;
+    private final PresenceService presenceService;
+    private final DialogMembershipCache dialogMembershipCache;
+    private final TypingStatusStore typingStatusStore;
+    private final EventStreamRegistry eventStreamRegistry;
+    private final MessagePollService messagePollService;
 
     private static final String DIALOG_NOT_FOUND_FORMAT = "Dialog with ID = %d not found";
     private static final String MESSAGE_NOT_FOUND_FORMAT = "Message with ID = %d not found";
-    private static final String PERSON_NOT_FOUND_FORMAT = "Person with ID = %d not found";
     private static final String USER_NOT_EXISTS_IN_DIALOG = "User (ID = %d) not found in dialog (ID = %d)";
+    private static final String TYPING_OF_OTHER_USER = "User (ID = %d) cannot change typing status of user (ID = %d)";
 
     //==================================================================================================================
 
@@ -57,7 +65,7 @@ public class DialogService {
      * @return true, если пользователь есть в диалоге, иначе false.
      */
     private boolean userExistsInDialog(long personId, long dialogId) {
-        return person2DialogRepository.find(personId, dialogId) != null;
+        return person2DialogRepository.exists(personId, dialogId);
     }
 
     /**
@@ -79,12 +87,13 @@ public class DialogService {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                     new ServiceResponse<>("user is not authorized", null));
         }
-        if (person.getDialogs().isEmpty()) {
+        List<Person2Dialog> personDialogs = person2DialogRepository.findAllByPersonId(person.getId());
+        if (personDialogs.isEmpty()) {
             log.warn("person has no dialogs");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                     new ServiceResponse<>("person has no dialogs", null));
         }
-        List<DialogResponse.DialogData> dialogDataList = getDialogDataList(query, person);
+        List<DialogResponse.DialogData> dialogDataList = getDialogDataList(query, personDialogs);
         ServiceResponse<DialogResponse> serviceResponse =
                 new ServiceResponse<DialogResponse>(DialogResponse.builder().dialogDataSet(dialogDataList).build());
         serviceResponse.setTotal(dialogDataList.size());
@@ -131,8 +140,7 @@ public class DialogService {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                     new ServiceResponse<>("user is not authorized", null));
         }
-        long unreadedMessagesCount = person.getReceivedMessages().stream()
-                .filter(message -> message.getStatus().equals(MessageStatus.SENT)).count();
+        long unreadedMessagesCount = messageService.getUnreadCount(person.getId());
         ServiceResponse<DialogResponse> serviceResponse =
                 new ServiceResponse<DialogResponse>(DialogResponse.builder()
                         .unreadedMessagesCount(unreadedMessagesCount).build());
@@ -152,6 +160,7 @@ public class DialogService {
                     new ServiceResponse<>("dialog id:" + dialogId + " not found", null));
         }
         person2DialogRepository.deleleByPersonIdAndDialogId(person.getId(), dialogId);
+        dialogMembershipCache.invalidate(dialogId);
 
         ServiceResponse<DialogResponse> serviceResponse =
                 new ServiceResponse<DialogResponse>(DialogResponse.builder().dialogId(dialogId).build());
@@ -193,6 +202,7 @@ public class DialogService {
         person2DialogRepository.saveAll(person2DialogSet);
         dialog.setPersons(person2DialogSet);
         dialogRepository.save(dialog);
+        dialogMembershipCache.invalidate(dialogId);
         ServiceResponse<DialogResponse> serviceResponse =
                 new ServiceResponse<DialogResponse>(DialogResponse.builder().userIds(recipients.stream()
                         .map(Person::getId).collect(Collectors.toList())).build());
@@ -232,6 +242,7 @@ public class DialogService {
         recipients.forEach(recipient -> person2DialogSet.remove(new Person2Dialog(recipient, dialog)));
         person2DialogRepository.deleteAll(person2DialogSet);
         dialogRepository.save(dialog);
+        dialogMembershipCache.invalidate(dialogId);
         ServiceResponse<DialogResponse> serviceResponse =
                 new ServiceResponse<DialogResponse>(DialogResponse.builder().userIds(recipients.stream()
                         .map(Person::getId).collect(Collectors.toList())).build());
@@ -245,7 +256,7 @@ public class DialogService {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                     new ServiceResponse<>("user is not authorized", null));
         }
-        if (person.getDialogs().stream().noneMatch(dialog -> dialog.getId() == dialogId)) {
+        if (!userExistsInDialog(person.getId(), dialogId)) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                     new ServiceResponse<>("dialog id:" + dialogId + "not found", null));
         }
@@ -278,6 +289,7 @@ public class DialogService {
                     new ServiceResponse<>("dialog not found", null));
         }
         Person2Dialog person2Dialog = person2DialogRepository.save(new Person2Dialog(person, dialog));
+        dialogMembershipCache.invalidate(dialog.getId());
         ServiceResponse<DialogResponse> serviceResponse =
                 new ServiceResponse<DialogResponse>(
                         DialogResponse.builder().userIds(Collections.singletonList(
@@ -293,28 +305,79 @@ public class DialogService {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                     new ServiceResponse<>("user is not authorized", null));
         }
-        if (person.getDialogs().isEmpty()) {
-            log.warn("person has no dialogs");
+        if (!userExistsInDialog(person.getId(), dialogId)) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
-                    new ServiceResponse<>("person has no dialogs", null));
-        }
-        if (person.getDialogs().stream().noneMatch(dialog -> dialog.getId() == dialogId)) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
-                    new ServiceResponse<>("dialog id:" + dialogId + "not found", null));
+                    new ServiceResponse<>(String.format(USER_NOT_EXISTS_IN_DIALOG, person.getId(), dialogId), null));
         }
-        Set<Message> dialogMessages = Strings.isNotEmpty(query) ?
-                Objects.requireNonNull(dialogRepository.findById(dialogId).orElse(null)).getMessages().stream()
-                        .filter(message -> message.getMessageText().contains(query)).collect(Collectors.toSet()) :
-                Objects.requireNonNull(dialogRepository.findById(dialogId).orElse(null)).getMessages();
-        ServiceResponse<DialogResponse> serviceResponse =
-                new ServiceResponse<DialogResponse>(
-                        DialogResponse.builder().dialogMessages(dialogMessages).build());
-        serviceResponse.setTotal(dialogMessages.size());
+        List<Message> page = messageService.findDialogMessages(dialogId, query, offset, itemPerPage);
+        ServiceResponse<DialogResponse> serviceResponse = new ServiceResponse<>(
+                DialogResponse.builder().dialogMessages(new LinkedHashSet<>(page)).build());
+        serviceResponse.setTotal((int) messageService.countDialogMessages(dialogId, query));
         serviceResponse.setOffset(offset);
         serviceResponse.setPerPage(itemPerPage);
         return ResponseEntity.status(HttpStatus.OK).body(serviceResponse);
     }
 
+    /**
+     * Метод getDialogMessagesAfter.
+     * Получение страницы сообщений диалога, следующих после курсора (time, id), в порядке "сначала новые".
+     *
+     * @param dialogId    - ID диалога.
+     * @param query       - строка для поиска (поиск как части в Message.messageText).
+     * @param after       - курсор последнего полученного сообщения, пустая строка - первая страница.
+     * @param itemPerPage - количество сообщений на страницу.
+     * @return страница сообщений и курсор следующей страницы.
+     * Количество сообщений по курсору не считается: total - оценка, равная размеру страницы
+     * плюс один, если есть следующая страница.
+     */
+    public ResponseEntity<ServiceResponseDataList<MessageFullResponse>> getDialogMessagesAfter(
+            long dialogId, String query, String after, int itemPerPage) {
+        Person person = accountService.findCurrentUser();
+        if (person == null) {
+            log.error("user is not authorized");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ServiceResponseDataList<>("user is not authorized"));
+        }
+        PageCursor cursor;
+        try {
+            cursor = PageCursor.parse(after);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ServiceResponseDataList<>(e.getMessage()));
+        }
+        if (!userExistsInDialog(person.getId(), dialogId)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ServiceResponseDataList<>(String.format(USER_NOT_EXISTS_IN_DIALOG, person.getId(), dialogId)));
+        }
+        int pageSize = Math.max(itemPerPage, 0);
+        List<Message> messages = messageService.findDialogMessagesAfter(dialogId, query, cursor, pageSize + 1);
+        boolean hasMore = messages.size() > pageSize;
+        List<Message> page = hasMore ? messages.subList(0, pageSize) : messages;
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(getDialogMessagesPage(page.size() + (hasMore ? 1 : 0), 0, itemPerPage, page, hasMore));
+    }
+
+    /**
+     * Ожидание новых сообщений диалога после указанного (long polling).
+     *
+     * @param dialogId  - ID диалога.
+     * @param messageId - ID последнего полученного сообщения.
+     * @return отложенный ответ с новыми сообщениями или пустым списком по истечении ожидания.
+     */
+    public DeferredResult<ResponseEntity<ServiceResponseDataList<MessageFullResponse>>> pollDialogMessages(
+            long dialogId, long messageId) {
+        Person person = accountService.findCurrentUser();
+        if (person == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        if (!dialogMembershipCache.isMember(dialogId, person.getId())) {
+            DeferredResult<ResponseEntity<ServiceResponseDataList<MessageFullResponse>>> result = new DeferredResult<>();
+            result.setResult(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ServiceResponseDataList<>(
+                    String.format(USER_NOT_EXISTS_IN_DIALOG, person.getId(), dialogId))));
+            return result;
+        }
+        return messagePollService.poll(dialogId, messageId);
+    }
+
     public ResponseEntity<ServiceResponse<AbstractResponse>> readMessage(long dialogId, long messageId) {
         if (!messageService.exists(messageId)) {
             return ErrorUtil.badRequest(String.format(MESSAGE_NOT_FOUND_FORMAT, messageId));
@@ -330,34 +393,71 @@ public class DialogService {
     }
 
     public ResponseEntity<ServiceResponse<AbstractResponse>> getLastActivity(long dialogId, long personId) {
-        if (!accountService.exists(personId)) {
-            return ErrorUtil.badRequest(String.format(PERSON_NOT_FOUND_FORMAT, personId));
-        }
-        if (!this.exists(dialogId)) {
-            return ErrorUtil.badRequest(String.format(DIALOG_NOT_FOUND_FORMAT, dialogId));
-        }
-        if (!this.userExistsInDialog(personId, dialogId)) {
+        if (!dialogMembershipCache.isMember(dialogId, personId)) {
             return ErrorUtil.badRequest(String.format(USER_NOT_EXISTS_IN_DIALOG, personId, dialogId));
         }
-        Person2Dialog person2Dialog = person2DialogRepository.find(personId, dialogId);
-        Person person = person2Dialog.getPerson();
-        UserActivityResponse userActivityResponse = UserActivityResponse.builder()
-                .online(person.isOnline())
-                .lastActivity(TimeUtil.getTimestampFromLocalDateTime(person.getLastOnlineTime()))
-                .build();
-        return ResponseEntity.ok(new ServiceResponse<>(userActivityResponse));
+        return ResponseEntity.ok(new ServiceResponse<>(presenceService.getActivity(personId)));
     }
 
+    /**
+     * Отметка, что текущий пользователь набирает текст в диалоге.
+     * ID пользователя из пути должен совпадать с ID текущего пользователя.
+     *
+     * @param dialogId - ID диалога.
+     * @param personId - ID пользователя из запроса.
+     * @return ответ с сообщением OK.
+     */
     public ResponseEntity<ServiceResponse<AbstractResponse>> changeTypingStatus(long dialogId, long personId) {
-        if (!accountService.exists(personId)) {
-            return ErrorUtil.badRequest(String.format(PERSON_NOT_FOUND_FORMAT, personId));
+        Person person = accountService.findCurrentUser();
+        if (person == null) {
+            return ErrorUtil.unauthorized();
         }
-        if (!this.exists(dialogId)) {
-            return ErrorUtil.badRequest(String.format(DIALOG_NOT_FOUND_FORMAT, dialogId));
+        if (person.getId() != personId) {
+            return ErrorUtil.badRequest(String.format(TYPING_OF_OTHER_USER, person.getId(), personId));
         }
+        if (!dialogMembershipCache.isMember(dialogId, personId)) {
+            return ErrorUtil.badRequest(String.format(USER_NOT_EXISTS_IN_DIALOG, personId, dialogId));
+        }
+        typingStatusStore.touch(dialogId, personId);
         return ResponseEntity.ok(new ServiceResponse<>(ResponseDataMessage.ok()));
     }
 
+    /**
+     * Подключение текущего пользователя к потоку событий его диалогов.
+     *
+     * @return поток событий.
+     */
+    public SseEmitter subscribe() {
+        Person person = accountService.findCurrentUser();
+        if (person == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        return eventStreamRegistry.connect(EventStreamRegistry.Channel.DIALOGS, person.getId());
+    }
+
+    /**
+     * Пользователи, набирающие текст в диалоге, кроме текущего.
+     *
+     * @param dialogId - ID диалога.
+     * @return ID пользователей, набирающих текст.
+     */
+    public ResponseEntity<ServiceResponse<AbstractResponse>> getTypingUsers(long dialogId) {
+        Person person = accountService.findCurrentUser();
+        if (person == null) {
+            return ErrorUtil.unauthorized();
+        }
+        if (!dialogMembershipCache.isMember(dialogId, person.getId())) {
+            return ErrorUtil.badRequest(String.format(USER_NOT_EXISTS_IN_DIALOG, person.getId(), dialogId));
+        }
+        List<Long> userIds = typingStatusStore.getTyping(dialogId).stream()
+                .filter(userId -> userId != person.getId())
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(new ServiceResponse<>(TypingResponse.builder()
+                .dialogId(dialogId)
+                .userIds(userIds)
+                .build()));
+    }
+
     public ResponseEntity<ServiceResponse<AbstractResponse>> sendMessage(long dialogId, MessageSendRequest sendRequest) {
         if (!this.exists(dialogId)) {
             return ErrorUtil.badRequest(String.format(DIALOG_NOT_FOUND_FORMAT, dialogId));
@@ -404,21 +504,37 @@ public class DialogService {
         return ResponseEntity.ok(new ServiceResponse<>(messageFullResponse));
     }
 
+    /**
+     * Метод getDialogMessagesPage.
+     * Формирование страницы сообщений с курсором следующей страницы.
+     * Курсор выдаётся, только если после страницы есть ещё сообщения.
+     */
+    private ServiceResponseDataList<MessageFullResponse> getDialogMessagesPage(int total, int offset, int itemPerPage,
+                                                                               List<Message> page, boolean hasMore) {
+        ServiceResponseDataList<MessageFullResponse> response = new ServiceResponseDataList<>(total, offset, itemPerPage,
+                page.stream().map(messageService::getMessageFullResponse).collect(Collectors.toList()));
+        if (hasMore && !page.isEmpty()) {
+            Message last = page.get(page.size() - 1);
+            response.setNext(PageCursor.toToken(last.getTime(), last.getId()));
+        }
+        return response;
+    }
+
     /**
      * Метод getDialogDataList.
      * Фильтрация по запросу и формирование коллекции данных о диалогах пользователя.
      *
-     * @param query  - строка, которую должны содержать сообщения пользователя.
-     * @param person - пользователь.
+     * @param query         - строка, которую должны содержать сообщения пользователя.
+     * @param personDialogs - участие пользователя в диалогах.
      * @return коллекция данных о диалогах пользователя.
      */
-    private List<DialogResponse.DialogData> getDialogDataList(String query, Person person) {
+    private List<DialogResponse.DialogData> getDialogDataList(String query, List<Person2Dialog> personDialogs) {
         return !Strings.isNotEmpty(query) ?
-                person.getDialogs().stream()
+                personDialogs.stream()
                         .map(Person2Dialog::getDialog)
                         .map(this::createDialogData)
                         .collect(Collectors.toList()) :
-                person.getDialogs().stream()
+                personDialogs.stream()
                         .filter(person2Dialog -> person2Dialog.getDialog().getMessages().stream()
                                 .anyMatch(message -> message.getMessageText().contains(query))
                         ).map(Person2Dialog::getDialog)
@@ -0,0 +1,233 @@
+package sn.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Реестр потоков событий (Server-Sent Events) подключённых пользователей.
+ * У каждого подключения своя ограниченная очередь отправки, которую разбирает общий пул потоков,
+ * так что медленный клиент не задерживает остальных. Если очередь подключения переполнена,
+ * клиент считается медленным и отключается; после переподключения он дочитывает пропущенное обычными запросами.
+ * Подключения разделены по каналам: событие канала уходит только в подключения этого канала.
+ */
+@Slf4j
+@Component
+public class EventStreamRegistry {
+    private static final String HEARTBEAT_COMMENT = "ping";
+
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final ExecutorService sender;
+    private final Map<Channel, Map<Long, List<Connection>>> connections = new EnumMap<>(Channel.class);
+
+    public EventStreamRegistry(@Value("${events.stream.timeout-ms}") long timeoutMillis,
+                               @Value("${events.stream.buffer-size}") int bufferSize,
+                               @Value("${events.stream.send-threads}") int sendThreads) {
+        this.timeoutMillis = timeoutMillis;
+        this.bufferSize = bufferSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "event-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Channel channel : Channel.values()) {
+            connections.put(channel, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Канал потока событий.
+     */
+    public enum Channel {
+        DIALOGS,
+        NOTIFICATIONS
+    }
+
+    /**
+     * Подключение пользователя к потоку событий канала.
+     *
+     * @param channel  - канал.
+     * @param personId - ID пользователя.
+     * @return поток событий, который надо вернуть из контроллера.
+     */
+    public SseEmitter connect(Channel channel, long personId) {
+        return connect(channel, personId, List::of);
+    }
+
+    /**
+     * Подключение пользователя к потоку событий с досылкой пропущенных событий.
+     * Подключение регистрируется до чтения пропущенных событий, поэтому событие, отправленное во время чтения,
+     * не теряется: новые события придерживаются и ставятся в очередь после пропущенных.
+     * Событие, попавшее и в пропущенные, и в новые, придёт дважды.
+     *
+     * @param channel  - канал.
+     * @param personId - ID пользователя.
+     * @param missed   - чтение событий, пропущенных пользователем с прошлого подключения.
+     * @return поток событий, который надо вернуть из контроллера.
+     */
+    public SseEmitter connect(Channel channel, long personId, Supplier<List<SseEventBuilder>> missed) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection = new Connection(channel, personId, emitter, new ArrayBlockingQueue<>(bufferSize));
+        connection.held = new ArrayList<>();
+        connections.get(channel).compute(personId, (id, personConnections) -> {
+            List<Connection> updated = personConnections == null ? new CopyOnWriteArrayList<>() : personConnections;
+            updated.add(connection);
+            return updated;
+        });
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+        List<SseEventBuilder> replay;
+        try {
+            replay = missed.get();
+        } catch (RuntimeException e) {
+            remove(connection);
+            throw e;
+        }
+        synchronized (connection) {
+            replay.forEach(event -> enqueue(connection, event));
+            connection.held.forEach(event -> enqueue(connection, event));
+            connection.held = null;
+        }
+        return emitter;
+    }
+
+    /**
+     * Отправка события всем подключениям указанных пользователей к каналу.
+     *
+     * @param channel   - канал.
+     * @param personIds - ID получателей.
+     * @param name      - название события.
+     * @param data      - данные события, сериализуются в JSON.
+     */
+    public void send(Channel channel, Collection<Long> personIds, String name, Object data) {
+        send(channel, personIds, name, null, data);
+    }
+
+    /**
+     * Отправка события с идентификатором всем подключениям указанных пользователей к каналу.
+     * Идентификатор приходит клиенту как Last-Event-ID при переподключении.
+     *
+     * @param channel   - канал.
+     * @param personIds - ID получателей.
+     * @param name      - название события.
+     * @param id        - идентификатор события, null - без идентификатора.
+     * @param data      - данные события, сериализуются в JSON.
+     */
+    public void send(Channel channel, Collection<Long> personIds, String name, String id, Object data) {
+        Map<Long, List<Connection>> channelConnections = connections.get(channel);
+        for (Long personId : personIds) {
+            List<Connection> personConnections = channelConnections.get(personId);
+            if (personConnections == null) {
+                continue;
+            }
+            for (Connection connection : personConnections) {
+                SseEventBuilder event = SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON);
+                deliver(connection, id == null ? event : event.id(id));
+            }
+        }
+    }
+
+    /**
+     * Периодическая отправка комментария во все подключения: не даёт прокси закрыть простаивающее
+     * соединение и выявляет клиентов, отключившихся без закрытия потока.
+     */
+    @Scheduled(fixedDelayString = "${events.stream.heartbeat-ms}")
+    public void heartbeat() {
+        connections.values().forEach(channelConnections -> channelConnections.values()
+                .forEach(personConnections -> personConnections
+                        .forEach(connection -> enqueue(connection, SseEmitter.event().comment(HEARTBEAT_COMMENT)))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(channelConnections -> channelConnections.values()
+                .forEach(personConnections -> personConnections
+                        .forEach(connection -> connection.emitter.complete())));
+        sender.shutdownNow();
+    }
+
+    private void deliver(Connection connection, SseEventBuilder event) {
+        synchronized (connection) {
+            if (connection.held != null) {
+                connection.held.add(event);
+                return;
+            }
+        }
+        enqueue(connection, event);
+    }
+
+    private void enqueue(Connection connection, SseEventBuilder event) {
+        if (!connection.queue.offer(event)) {
+            log.debug("event stream of person {} is too slow, disconnecting", connection.personId);
+            remove(connection);
+            connection.emitter.complete();
+            return;
+        }
+        if (connection.draining.compareAndSet(false, true)) {
+            sender.execute(() -> drain(connection));
+        }
+    }
+
+    private void drain(Connection connection) {
+        do {
+            SseEventBuilder event;
+            while ((event = connection.queue.poll()) != null) {
+                try {
+                    connection.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    remove(connection);
+                    connection.queue.clear();
+                    return;
+                }
+            }
+            connection.draining.set(false);
+        } while (!connection.queue.isEmpty() && connection.draining.compareAndSet(false, true));
+    }
+
+    private void remove(Connection connection) {
+        connections.get(connection.channel).computeIfPresent(connection.personId, (id, personConnections) -> {
+            personConnections.remove(connection);
+            return personConnections.isEmpty() ? null : personConnections;
+        });
+    }
+
+    private static final class Connection {
+        private final Channel channel;
+        private final long personId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private List<SseEventBuilder> held;
+
+        private Connection(Channel channel, long personId, SseEmitter emitter, BlockingQueue<SseEventBuilder> queue) {
+            this.channel = channel;
+            this.personId = personId;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
@@ -1,36 +1,234 @@
 package sn.service;
 
+import lombok.extern.slf4j.Slf4j;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import sn.api.response.ResponseDataMessage;
-import sn.api.response.ServiceResponse;
+import org.springframework.transaction.annotation.Transactional;
+import sn.api.response.ServiceResponseDataList;
+import sn.api.response.WallPostResponse;
+import sn.model.FeedEntry;
+import sn.model.Person;
+import sn.model.Post;
+import sn.model.enums.FriendshipStatusCode;
+import sn.repositories.FeedRepository;
+import sn.repositories.FriendshipRepository;
+import sn.repositories.PostRepository;
+import sn.utils.PageCursor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
- * Сервис для обработки ленты новостей
+ * Сервис для обработки ленты новостей.
+ * Лента строится при публикации: пост раскладывается в персональные ленты автора и его подписчиков,
+ * а чтение ленты сводится к одному диапазонному запросу по индексу (reader_id, post_time, post_id).
+ * Посты популярных авторов по лентам не раскладываются: они берутся из CelebrityPostCache и подмешиваются при чтении.
  */
+@Slf4j
 @Service
 public class FeedService {
+    private static final Set<FriendshipStatusCode> FOLLOW_STATUSES =
+            EnumSet.of(FriendshipStatusCode.FRIEND, FriendshipStatusCode.SUBSCRIBED);
+
+    private final FeedRepository feedRepository;
+    private final FriendshipRepository friendshipRepository;
+    private final PostRepository postRepository;
+    private final CelebrityPostCache celebrityPostCache;
+    private final AccountService accountService;
+    private final WallPostAssembler wallPostAssembler;
+    private final int backfillPosts;
+
+    public FeedService(FeedRepository feedRepository, FriendshipRepository friendshipRepository,
+                       PostRepository postRepository, CelebrityPostCache celebrityPostCache,
+                       @Lazy AccountService accountService, WallPostAssembler wallPostAssembler,
+                       @Value("${feed.backfill-posts}") int backfillPosts) {
+        this.feedRepository = feedRepository;
+        this.friendshipRepository = friendshipRepository;
+        this.postRepository = postRepository;
+        this.celebrityPostCache = celebrityPostCache;
+        this.accountService = accountService;
+        this.wallPostAssembler = wallPostAssembler;
+        this.backfillPosts = backfillPosts;
+    }
+
+    /**
+     * Публикация поста в ленты автора и его подписчиков.
+     * Пост популярного автора попадает только в ленту самого автора и в кэш популярных постов.
+     *
+     * @param post - только что сохранённый пост
+     */
+    @Transactional
+    public void publishPost(Post post) {
+        long authorId = post.getAuthor().getId();
+        if (celebrityPostCache.isCelebrity(authorId)) {
+            FeedEntry entry = new FeedEntry();
+            entry.setReaderId(authorId);
+            entry.setPostId(post.getId());
+            entry.setAuthorId(authorId);
+            entry.setPostTime(post.getTime());
+            feedRepository.save(entry);
+            celebrityPostCache.addPost(post);
+            log.debug("Post {} of popular author {} added to celebrity cache", post.getId(), authorId);
+            return;
+        }
+        int delivered = feedRepository.fanOut(post.getId(), authorId, post.getTime());
+        log.debug("Post {} delivered to {} feeds", post.getId(), delivered);
+    }
+
     /**
-     * Получение списка новостей
+     * Читатель подписался на автора: в его ленту добавляются последние посты автора.
+     *
+     * @param readerId - читатель ленты
+     * @param authorId - автор
+     */
+    @Transactional
+    public void follow(long readerId, long authorId) {
+        int added = feedRepository.backfill(readerId, authorId, backfillPosts);
+        log.debug("{} posts of {} added to feed of {}", added, authorId, readerId);
+    }
+
+    /**
+     * Читатель отписался от автора: посты автора удаляются из его ленты.
+     *
+     * @param readerId - читатель ленты
+     * @param authorId - автор
+     */
+    @Transactional
+    public void unfollow(long readerId, long authorId) {
+        int removed = feedRepository.purge(readerId, authorId);
+        log.debug("{} posts of {} removed from feed of {}", removed, authorId, readerId);
+    }
+
+    /**
+     * Получение списка новостей.
+     * Точное количество новостей в ленте не считается: total - оценка, равная числу уже полученных новостей
+     * плюс один, если есть следующая страница.
      * @param name Текст новости для поиска
-     * @param offset Отступ от начала списка
+     * @param offset Отступ от начала списка, используется только без курсора
      * @param itemPerPage Количество элементов на страницу
+     * @param after Курсор "time,id" последней полученной новости
      * @return 200 - список новостей получен успешно, 400 - ошибка во время получения списка, 401 - ошибка авторизации.
      */
-    public ResponseEntity<ServiceResponse> getFeeds(String name, int offset, int itemPerPage) {
-        // TODO сменить, когда появится проверка авторизации
-        boolean isAuthorized = true;
-        // TODO сменить, успешное получение списка новостей
-        boolean feedsIsOk = true;
+    public ResponseEntity<ServiceResponseDataList<WallPostResponse>> getFeeds(String name, int offset,
+                                                                              int itemPerPage, String after) {
+        Person person = accountService.findCurrentUser();
+        if (person == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new ServiceResponseDataList<>("User isn`t authorized"));
+        }
+        PageCursor cursor;
+        try {
+            cursor = PageCursor.parse(after);
+        } catch (IllegalArgumentException e) {
+            log.warn(e.getMessage());
+            return ResponseEntity.badRequest().body(new ServiceResponseDataList<>("Unable to get feeds"));
+        }
+        String query = Strings.isNotEmpty(name) ? name : "";
+        int pageSize = Math.max(itemPerPage, 0);
+        int skip = cursor == null ? Math.max(offset, 0) : 0;
+        List<Long> celebrities = findFollowedCelebrities(person.getId());
+
+        List<Post> page;
+        boolean hasMore;
+        if (celebrities.isEmpty()) {
+            List<Post> posts = cursor == null
+                    ? feedRepository.findFeed(person.getId(), query, skip, pageSize + 1)
+                    : feedRepository.findFeedAfter(person.getId(), query, cursor.getTime(), cursor.getId(), pageSize + 1);
+            hasMore = posts.size() > pageSize;
+            page = hasMore ? posts.subList(0, pageSize) : posts;
+        } else {
+            int limit = skip + pageSize + 1;
+            List<Post> posts = cursor == null
+                    ? feedRepository.findFeed(person.getId(), query, 0, limit)
+                    : feedRepository.findFeedAfter(person.getId(), query, cursor.getTime(), cursor.getId(), limit);
+            List<Post> merged = merge(posts, findCelebrityPosts(celebrities, cursor, query, limit));
+            hasMore = merged.size() > skip + pageSize;
+            page = merged.subList(Math.min(skip, merged.size()), Math.min(skip + pageSize, merged.size()));
+        }
+
+        List<WallPostResponse> feeds = wallPostAssembler.assemble(page);
+
+        int total = offset + feeds.size() + (hasMore ? 1 : 0);
+        ServiceResponseDataList<WallPostResponse> response =
+                new ServiceResponseDataList<>(total, offset, itemPerPage, feeds);
+        if (hasMore && !page.isEmpty()) {
+            Post last = page.get(page.size() - 1);
+            response.setNext(PageCursor.toToken(last.getTime(), last.getId()));
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Популярные авторы, на которых подписан читатель.
+     *
+     * @param readerId - читатель ленты
+     */
+    private List<Long> findFollowedCelebrities(long readerId) {
+        Set<Long> celebrities = celebrityPostCache.getCelebrityIds();
+        if (celebrities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return friendshipRepository.findFollowedAmong(readerId, new ArrayList<>(celebrities),
+                FOLLOW_STATUSES, FriendshipStatusCode.FRIEND);
+    }
 
-        if (!isAuthorized) {
-            return new ResponseEntity<>(new ServiceResponse<>("invalid_request",
-                    new ResponseDataMessage("User isn`t authorized")), HttpStatus.UNAUTHORIZED);
+    /**
+     * Посты популярных авторов, идущие после курсора, с учётом фильтра по тексту.
+     * С фильтром посты читаются одним запросом по таблице posts. Без фильтра ключи берутся из кэша
+     * и догружаются по идентификаторам; удалённые посты отбрасываются и ключи дочитываются, пока не наберётся limit.
+     */
+    private List<Post> findCelebrityPosts(List<Long> authorIds, PageCursor cursor, String query, int limit) {
+        if (!query.isEmpty()) {
+            PageCursor from = cursor == null ? PageCursor.FIRST : cursor;
+            return postRepository.findByAuthorsBefore(authorIds, query, from.getTime(), from.getId(), limit);
         }
+        List<Post> result = new ArrayList<>();
+        PageCursor from = cursor;
+        while (result.size() < limit) {
+            int requested = limit - result.size();
+            List<PageCursor> keys = celebrityPostCache.findPosts(authorIds, from, requested);
+            if (keys.isEmpty()) {
+                break;
+            }
+            Map<Long, Post> loaded = postRepository.findAllById(keys.stream()
+                    .map(PageCursor::getId)
+                    .collect(Collectors.toList())).stream()
+                    .filter(post -> !post.isDeleted())
+                    .collect(Collectors.toMap(Post::getId, Function.identity()));
+            keys.stream()
+                    .map(key -> loaded.get(key.getId()))
+                    .filter(Objects::nonNull)
+                    .forEach(result::add);
+            if (keys.size() < requested) {
+                break;
+            }
+            from = keys.get(keys.size() - 1);
+        }
+        return result;
+    }
 
-        return feedsIsOk ? new ResponseEntity<>(new ServiceResponse(), HttpStatus.OK)
-                : new ResponseEntity<>(new ServiceResponse<>("invalid_request",
-                        new ResponseDataMessage("Unable to get feeds")), HttpStatus.BAD_REQUEST);
+    /**
+     * Слияние постов из персональной ленты и постов популярных авторов в порядке "сначала новые".
+     */
+    private List<Post> merge(List<Post> timeline, List<Post> pulled) {
+        Map<Long, Post> posts = new LinkedHashMap<>();
+        timeline.forEach(post -> posts.put(post.getId(), post));
+        pulled.forEach(post -> posts.putIfAbsent(post.getId(), post));
+        List<Post> merged = new ArrayList<>(posts.values());
+        merged.sort(Comparator.comparing(Post::getTime).thenComparingLong(Post::getId).reversed());
+        return merged;
     }
 }
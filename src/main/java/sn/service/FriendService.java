@@ -4,15 +4,20 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import sn.api.requests.IsFriendsRequest;
 import sn.api.response.IsFriendResponse;
+import sn.events.NotificationEvent;
 import sn.model.Friendship;
 import sn.model.Person;
 import sn.model.*;
 import sn.model.enums.FriendshipStatusCode;
+import sn.model.enums.NotificationTypeCode;
 import sn.repositories.FriendshipRepository;
 import sn.repositories.PersonRepository;
+import sn.utils.PageCursor;
 
 /**
  * Класс FriendService Сервисный слой для друзей пользователя.
@@ -30,6 +35,12 @@ public class FriendService {
     @Autowired
     private PersonRepository personRepository;
 
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Метод getFriendList. Получить список друзей
      *
@@ -46,6 +57,21 @@ public class FriendService {
         return personRepository.findFriends(id, offset, itemPerPage, (name == null) ? "" : name);
     }
 
+    /**
+     * Метод getFriendListAfter. Получить страницу друзей, следующих после курсора
+     *
+     * @param id          - пользователь
+     * @param name        - характерное имя для поиска
+     * @param cursor      - курсор (reg_date, id) последнего полученного друга
+     * @param itemPerPage - Количество пользователей, которые представлены для отображения.
+     * @return список друзей или пустой список, если друзей не обнаружено
+     */
+
+    public List<Person> getFriendListAfter(long id, String name, PageCursor cursor, int itemPerPage) {
+        return personRepository.findFriendsAfter(id, cursor.getTime(), cursor.getId(), itemPerPage,
+            (name == null) ? "" : name, PageCursor.NO_TIME);
+    }
+
     /**
      * Метод getFriendsCount. Количество друзей пользователя
      *
@@ -59,12 +85,14 @@ public class FriendService {
 
     /**
      * Метод deleteFriend. Удалить друга, либо сделать его подписчиком
+     * Изменение дружбы и ленты пользователей выполняются в одной транзакции.
      *
      * @param id       - пользователь
      * @param friendId - друг
      * @return false - если friendId не дружит с пользователь, иначе - true
      */
 
+    @Transactional
     public boolean deleteFriend(long id, long friendId) {
         Friendship friendship = friendshipRepository
             .getFriendship(id, friendId, FriendshipStatusCode.FRIEND.toString());
@@ -74,21 +102,25 @@ public class FriendService {
 
         if (friendship.getSrcPerson() == id) {
             friendshipRepository.delete(friendship);
+            feedService.unfollow(friendId, id);
         } else {
             friendship.setStatus(FriendshipStatusCode.SUBSCRIBED);
             friendshipRepository.save(friendship);
         }
+        feedService.unfollow(id, friendId);
         return true;
     }
 
     /**
      * Метод addFriend. Добавить друга, либо отправить запрос на дружбу
+     * Изменение дружбы и ленты пользователей выполняются в одной транзакции.
      *
      * @param id       - пользователь
      * @param friendId - друг
      * @return false - если пользователь с friendId не существует, иначе - true
      */
 
+    @Transactional
     public boolean addFriend(long id, long friendId) {
         if (personRepository.findById(friendId).isEmpty()) {
             return false;
@@ -97,12 +129,20 @@ public class FriendService {
         Friendship friendship = friendshipRepository
             .getFriendship(id, friendId, FriendshipStatusCode.REQUEST.toString());
 
-        if (friendship == null) {
+        boolean request = friendship == null;
+        if (request) {
             friendship = new Friendship(id, friendId, FriendshipStatusCode.REQUEST);
         } else {
             friendship.setStatus(FriendshipStatusCode.FRIEND);
         }
         friendshipRepository.save(friendship);
+        if (request) {
+            eventPublisher.publishEvent(new NotificationEvent(NotificationTypeCode.FRIEND_REQUEST,
+                List.of(friendId), id, id, null));
+        } else {
+            feedService.follow(id, friendId);
+            feedService.follow(friendId, id);
+        }
         return true;
     }
 
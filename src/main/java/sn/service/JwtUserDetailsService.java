@@ -4,14 +4,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.User.UserBuilder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import sn.model.Person;
 import sn.repositories.PersonRepository;
 
 @Service
-public class JwtUserDetailsService implements UserDetailsService {
+public class JwtUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private PersonRepository personRepository;
@@ -34,4 +36,20 @@ public class JwtUserDetailsService implements UserDetailsService {
         }
             return builder.build();
     }
+
+    /**
+     * Сохранение пароля, перехэшированного при входе после изменения сложности BCrypt.
+     *
+     * @param user        - данные пользователя;
+     * @param newPassword - новый хэш пароля.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        personRepository.findByEmail(user.getUsername()).ifPresent(person -> {
+            person.setPassword(newPassword);
+            personRepository.save(person);
+        });
+        return User.withUserDetails(user).password(newPassword).build();
+    }
 }
@@ -0,0 +1,140 @@
+package sn.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Буфер изменений счётчиков лайков постов (write-behind).
+ * Изменения накапливаются в памяти по каждому посту и периодически записываются в posts.likes
+ * одним пакетом, так что всплеск лайков под популярным постом не конкурирует за одну строку таблицы.
+ * Ещё не записанные изменения учитываются при чтении счётчика через getPending.
+ * Пакет записывается в одной транзакции: при ошибке не применяется ни одна строка и изменения возвращаются в буфер.
+ * Записываемые изменения перестают учитываться в getPending в момент фиксации транзакции, под блокировкой обмена.
+ */
+@Slf4j
+@Component
+public class LikeCounterBuffer {
+    private static final String FLUSH_SQL = "UPDATE posts SET likes = likes + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private volatile Map<Long, LongAdder> flushing = Map.of();
+
+    public LikeCounterBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Добавление изменения счётчика лайков поста.
+     *
+     * @param postId - идентификатор поста;
+     * @param delta  - изменение счётчика.
+     */
+    public void add(long postId, long delta) {
+        swapLock.readLock().lock();
+        try {
+            pending.computeIfAbsent(postId, id -> new LongAdder()).add(delta);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ещё не записанное в базу изменение счётчика лайков поста.
+     *
+     * @param postId - идентификатор поста;
+     * @return - сумма незаписанных изменений.
+     */
+    public long getPending(long postId) {
+        swapLock.readLock().lock();
+        try {
+            return sumOf(pending.get(postId)) + sumOf(flushing.get(postId));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Запись накопленных изменений в базу одним пакетом.
+     * Вызывается по расписанию и при остановке приложения.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${likes.counter.flush-interval-ms}")
+    public synchronized void flush() {
+        Map<Long, LongAdder> drained;
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = pending;
+            flushing = drained;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        List<Object[]> batch = new ArrayList<>();
+        drained.forEach((postId, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) {
+                batch.add(new Object[]{delta, postId});
+            }
+        });
+        if (batch.isEmpty()) {
+            flushing = Map.of();
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void beforeCommit(boolean readOnly) {
+                        swapLock.writeLock().lock();
+                    }
+
+                    @Override
+                    public void afterCompletion(int completionStatus) {
+                        if (swapLock.isWriteLockedByCurrentThread()) {
+                            if (completionStatus == STATUS_COMMITTED) {
+                                flushing = Map.of();
+                            }
+                            swapLock.writeLock().unlock();
+                        }
+                    }
+                });
+            });
+            log.debug("flushed like counters of {} posts", batch.size());
+        } catch (RuntimeException e) {
+            log.error("like counters flush failed, {} posts will be retried", batch.size(), e);
+            swapLock.writeLock().lock();
+            try {
+                batch.forEach(row -> pending.computeIfAbsent((Long) row[1], id -> new LongAdder()).add((Long) row[0]));
+                flushing = Map.of();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private long sumOf(LongAdder adder) {
+        return adder == null ? 0 : adder.sum();
+    }
+}
@@ -1,14 +1,29 @@
 package sn.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import sn.model.Like;
+import org.springframework.transaction.annotation.Transactional;
+import sn.api.response.IdResponse;
+import sn.api.response.ServiceResponseDataList;
+import sn.events.NotificationEvent;
+import sn.model.Comment;
 import sn.model.Person;
+import sn.model.Post;
 import sn.model.enums.LikeType;
+import sn.model.enums.NotificationTypeCode;
 import sn.repositories.LikeRepository;
+import sn.utils.TransactionUtil;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class LikeService {
@@ -18,6 +33,15 @@ public class LikeService {
 
     @Autowired
     private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private LikedItemsCache likedItemsCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     //==================================================================================================================
 
     /**
@@ -32,6 +56,59 @@ public class LikeService {
         return likeRepository.likeExist(person.getId(), itemId, type.toString())>0;
     }
 
+    /**
+     * Отметки "мне нравится" пользователя среди указанных объектов.
+     * Признаки берутся из LikedItemsCache, недостающие загружаются из базы одним запросом.
+     *
+     * @param person - пользователь;
+     * @param items  - идентификаторы объектов по типам лайка.
+     * @return - идентификаторы объектов, под которыми стоит лайк пользователя, по типам лайка.
+     */
+    public Map<LikeType, List<Long>> getLikedItems(Person person, Map<LikeType, List<Long>> items) {
+        Map<LikeType, List<Long>> result = new EnumMap<>(LikeType.class);
+        Map<LikeType, Set<Long>> misses = new EnumMap<>(LikeType.class);
+        Set<Long> missIds = new HashSet<>();
+        items.forEach((type, ids) -> {
+            if (type == null || ids == null) {
+                return;
+            }
+            Set<Long> requested = new LinkedHashSet<>(ids);
+            Map<Long, Boolean> known = likedItemsCache.getKnown(person.getId(), type, requested);
+            List<Long> liked = new ArrayList<>();
+            known.forEach((itemId, isLiked) -> {
+                if (isLiked) {
+                    liked.add(itemId);
+                }
+            });
+            result.put(type, liked);
+            requested.removeAll(known.keySet());
+            if (!requested.isEmpty()) {
+                misses.put(type, requested);
+                missIds.addAll(requested);
+            }
+        });
+        if (missIds.isEmpty()) {
+            return result;
+        }
+        Map<LikeType, Set<Long>> likedInDb = new EnumMap<>(LikeType.class);
+        for (Object[] row : likeRepository.findLikedItems(person.getId(), missIds)) {
+            likedInDb.computeIfAbsent((LikeType) row[0], type -> new HashSet<>()).add((Long) row[1]);
+        }
+        misses.forEach((type, ids) -> {
+            Set<Long> likedOfType = likedInDb.getOrDefault(type, Set.of());
+            Map<Long, Boolean> loaded = new HashMap<>();
+            for (Long itemId : ids) {
+                boolean isLiked = likedOfType.contains(itemId);
+                loaded.put(itemId, isLiked);
+                if (isLiked) {
+                    result.get(type).add(itemId);
+                }
+            }
+            likedItemsCache.putLoaded(person.getId(), type, loaded);
+        });
+        return result;
+    }
+
     /**
      * Метод список пользователей (их идентификаторы), которые поставили лайк под объектом.
      *
@@ -44,6 +121,52 @@ public class LikeService {
         return result != null ? result : new ArrayList<>();
     }
 
+    /**
+     * Количество лайков под объектом. Для постов берётся из счётчика posts.likes
+     * с учётом ещё не записанных изменений, для комментариев считается по индексу.
+     *
+     * @param itemId - идентификатор объекта;
+     * @param type   - тип лайка (под постом или комментарием).
+     * @return - количество лайков.
+     */
+    public int getLikesCount(long itemId, LikeType type) {
+        if (type == LikeType.POST) {
+            Post post = postService.findById(itemId);
+            return post == null ? 0 : postService.getLikesCount(post);
+        }
+        return (int) likeRepository.countLikes(itemId, type.toString());
+    }
+
+    /**
+     * Страница пользователей, поставивших лайк под объектом, в порядке "сначала новые".
+     *
+     * @param itemId      - идентификатор объекта;
+     * @param type        - тип лайка (под постом или комментарием);
+     * @param after       - идентификатор последнего полученного лайка, null - первая страница;
+     * @param itemPerPage - количество пользователей на страницу.
+     * @return - страница идентификаторов пользователей и курсор следующей страницы.
+     */
+    public ServiceResponseDataList<IdResponse> getUsersOfLikePage(long itemId, LikeType type, Long after,
+                                                                   int itemPerPage) {
+        int pageSize = Math.max(itemPerPage, 0);
+        List<Object[]> found = likeRepository.findUsersOfLikeAfter(itemId, type,
+                after == null ? Long.MAX_VALUE : after, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = found.size() > pageSize;
+        List<Object[]> rows = hasMore ? found.subList(0, pageSize) : found;
+        List<IdResponse> users = new ArrayList<>();
+        for (Object[] row : rows) {
+            IdResponse user = new IdResponse();
+            user.setId((Long) row[1]);
+            users.add(user);
+        }
+        ServiceResponseDataList<IdResponse> response = new ServiceResponseDataList<>(
+                getLikesCount(itemId, type), 0, itemPerPage, users);
+        if (hasMore && !rows.isEmpty()) {
+            response.setNext(String.valueOf(rows.get(rows.size() - 1)[0]));
+        }
+        return response;
+    }
+
     /**
      * Метод создаёт лайк в базе.
      *
@@ -51,13 +174,21 @@ public class LikeService {
      * @param type - тип лайка (под постом или комментарием);
      * @param itemId   - идентификатор объекта, которому ставится лайк.
      */
+    @Transactional
     public boolean putLike(Person person, long itemId, LikeType type) {
-        if (likeExists(person,itemId,type)) {
+        if (likeRepository.insertLike(person.getId(), itemId, type.toString()) == 0) {
             return false;
         }
-        likeRepository.save(new Like(person,itemId,type));
-        if (type == LikeType.POST) {
-            postService.incLikesCount(itemId);
+        TransactionUtil.afterCommit(() -> {
+            likedItemsCache.put(person.getId(), type, itemId, true);
+            if (type == LikeType.POST) {
+                postService.incLikesCount(itemId);
+            }
+        });
+        Person itemAuthor = getItemAuthor(itemId, type);
+        if (itemAuthor != null) {
+            eventPublisher.publishEvent(new NotificationEvent(NotificationTypeCode.LIKE, List.of(itemAuthor.getId()),
+                    person.getId(), itemId, type.toString()));
         }
         return true;
     }
@@ -69,13 +200,23 @@ public class LikeService {
      * @param type - тип лайка (под постом или комментарием);
      * @param itemId   - идентификатор объекта, которому ставится лайк.
      */
+    @Transactional
     public void removeLike(Person person, long itemId, LikeType type) {
-        Long deleteId = likeRepository.findLikeId(person.getId(),itemId,type.toString());
-        if (deleteId!=null) {
-            likeRepository.deleteById(deleteId);
-            if (type == LikeType.POST) {
+        boolean removed = likeRepository.deleteLike(person.getId(), itemId, type.toString()) > 0;
+        TransactionUtil.afterCommit(() -> {
+            likedItemsCache.put(person.getId(), type, itemId, false);
+            if (removed && type == LikeType.POST) {
                 postService.decLikesCount(itemId);
             }
+        });
+    }
+
+    private Person getItemAuthor(long itemId, LikeType type) {
+        if (type == LikeType.POST) {
+            Post post = postService.findById(itemId);
+            return post == null ? null : post.getAuthor();
         }
+        Comment comment = commentService.findById(itemId);
+        return comment == null ? null : comment.getAuthor();
     }
 }
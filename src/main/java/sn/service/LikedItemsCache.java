@@ -0,0 +1,100 @@
+package sn.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sn.model.enums.LikeType;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш отметок "мне нравится" недавно активных пользователей.
+ * Для каждого пользователя хранится ограниченное число последних проверенных объектов с признаком,
+ * стоит ли на них лайк. Кэш обновляется при постановке и снятии лайка после фиксации транзакции.
+ */
+@Component
+public class LikedItemsCache {
+    private final int maxItemsPerUser;
+    private final Map<Long, Map<LikeType, Map<Long, Boolean>>> users;
+
+    public LikedItemsCache(@Value("${likes.liked-cache.max-users}") int maxUsers,
+                           @Value("${likes.liked-cache.max-items-per-user}") int maxItemsPerUser) {
+        this.maxItemsPerUser = maxItemsPerUser;
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Map<LikeType, Map<Long, Boolean>>> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Известные кэшу признаки лайков пользователя для указанных объектов.
+     *
+     * @param personId - идентификатор пользователя;
+     * @param type     - тип объектов;
+     * @param itemIds  - идентификаторы объектов;
+     * @return - признаки лайков для объектов, найденных в кэше.
+     */
+    public Map<Long, Boolean> getKnown(long personId, LikeType type, Collection<Long> itemIds) {
+        Map<Long, Boolean> known = new HashMap<>();
+        Map<Long, Boolean> items = getItems(personId, type);
+        synchronized (items) {
+            for (Long itemId : itemIds) {
+                Boolean liked = items.get(itemId);
+                if (liked != null) {
+                    known.put(itemId, liked);
+                }
+            }
+        }
+        return known;
+    }
+
+    /**
+     * Сохранение признаков, загруженных из базы. Признаки, уже записанные при постановке
+     * или снятии лайка, не перезаписываются.
+     *
+     * @param personId - идентификатор пользователя;
+     * @param type     - тип объектов;
+     * @param loaded   - признаки лайков по идентификаторам объектов.
+     */
+    public void putLoaded(long personId, LikeType type, Map<Long, Boolean> loaded) {
+        Map<Long, Boolean> items = getItems(personId, type);
+        synchronized (items) {
+            loaded.forEach(items::putIfAbsent);
+        }
+    }
+
+    /**
+     * Обновление признака после постановки или снятия лайка.
+     *
+     * @param personId - идентификатор пользователя;
+     * @param type     - тип объекта;
+     * @param itemId   - идентификатор объекта;
+     * @param liked    - стоит ли лайк.
+     */
+    public void put(long personId, LikeType type, long itemId, boolean liked) {
+        Map<Long, Boolean> items = getItems(personId, type);
+        synchronized (items) {
+            items.put(itemId, liked);
+        }
+    }
+
+    private Map<Long, Boolean> getItems(long personId, LikeType type) {
+        Map<LikeType, Map<Long, Boolean>> byType;
+        synchronized (users) {
+            byType = users.computeIfAbsent(personId, id -> new EnumMap<>(LikeType.class));
+        }
+        synchronized (byType) {
+            return byType.computeIfAbsent(type, t -> new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                    return size() > maxItemsPerUser;
+                }
+            });
+        }
+    }
+}
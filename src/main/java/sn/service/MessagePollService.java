@@ -0,0 +1,152 @@
+package sn.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import sn.api.response.MessageFullResponse;
+import sn.api.response.ServiceResponseDataList;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Ожидание новых сообщений диалога (long polling).
+ * Запрос регистрируется как ожидающий и отпускает поток сервлета; ответ отдаётся, когда в диалоге
+ * появляется сообщение новее переданного или истекает dialogs.poll.timeout-ms (тогда список пуст).
+ * Ожидающий регистрируется до проверки базы, поэтому сообщение, отправленное между проверкой
+ * и ожиданием, не теряется.
+ * Ответ на отправку сообщения готовится не в потоке запроса отправителя, а в одном из
+ * dialogs.poll.notify-threads потоков; события одного диалога обрабатываются одним потоком по порядку.
+ * Ожидающие дочитывают сообщения запросом, один запрос на каждый различный курсор: сообщения диалога
+ * фиксируются не обязательно в порядке ID, поэтому только что отправленное сообщение может быть не единственным
+ * новым для ожидающего.
+ */
+@Slf4j
+@Service
+public class MessagePollService {
+    private final MessageService messageService;
+    private final long timeoutMillis;
+    private final int maxItems;
+    private final ExecutorService[] notifiers;
+    private final Map<Long, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    public MessagePollService(MessageService messageService,
+                              @Value("${dialogs.poll.timeout-ms}") long timeoutMillis,
+                              @Value("${dialogs.poll.max-items}") int maxItems,
+                              @Value("${dialogs.poll.notify-threads}") int notifyThreads) {
+        this.messageService = messageService;
+        this.timeoutMillis = timeoutMillis;
+        this.maxItems = maxItems;
+        this.notifiers = new ExecutorService[notifyThreads];
+        for (int i = 0; i < notifyThreads; i++) {
+            String name = "message-poll-" + (i + 1);
+            notifiers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Ожидание сообщений диалога, отправленных после указанного.
+     *
+     * @param dialogId  - ID диалога.
+     * @param messageId - ID последнего полученного сообщения.
+     * @return отложенный ответ со списком новых сообщений в порядке отправки.
+     */
+    public DeferredResult<ResponseEntity<ServiceResponseDataList<MessageFullResponse>>> poll(long dialogId, long messageId) {
+        DeferredResult<ResponseEntity<ServiceResponseDataList<MessageFullResponse>>> result =
+                new DeferredResult<>(timeoutMillis, ResponseEntity.ok(new ServiceResponseDataList<>(List.of())));
+        Waiter waiter = new Waiter(messageId, result);
+        waiters.compute(dialogId, (id, dialogWaiters) -> {
+            Set<Waiter> updated = dialogWaiters == null ? ConcurrentHashMap.newKeySet() : dialogWaiters;
+            updated.add(waiter);
+            return updated;
+        });
+        result.onCompletion(() -> remove(dialogId, waiter));
+        complete(dialogId, List.of(waiter));
+        return result;
+    }
+
+    /**
+     * Ответ ожидающим запросам после отправки сообщения в диалог.
+     * Ответ готовится в потоке диалога, метод сразу возвращает управление.
+     *
+     * @param dialogId - ID диалога.
+     * @param message  - отправленное сообщение.
+     */
+    public void onMessageSent(long dialogId, MessageFullResponse message) {
+        if (!waiters.containsKey(dialogId)) {
+            return;
+        }
+        try {
+            notifiers[Math.floorMod(dialogId, notifiers.length)].execute(() -> deliver(dialogId, message));
+        } catch (RejectedExecutionException e) {
+            log.debug("message {} was not delivered to waiters of dialog {}", message.getId(), dialogId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService notifier : notifiers) {
+            notifier.shutdownNow();
+        }
+    }
+
+    private void deliver(long dialogId, MessageFullResponse message) {
+        Set<Waiter> dialogWaiters = waiters.get(dialogId);
+        if (dialogWaiters == null) {
+            return;
+        }
+        List<Waiter> behind = dialogWaiters.stream()
+                .filter(waiter -> waiter.messageId < message.getId())
+                .collect(Collectors.toList());
+        if (!behind.isEmpty()) {
+            complete(dialogId, behind);
+        }
+    }
+
+    private void complete(long dialogId, List<Waiter> candidates) {
+        Map<Long, List<Waiter>> byMessageId = candidates.stream()
+                .filter(waiter -> !waiter.result.isSetOrExpired())
+                .collect(Collectors.groupingBy(waiter -> waiter.messageId));
+        byMessageId.forEach((messageId, sameCursor) -> {
+            List<MessageFullResponse> messages = messageService.findDialogMessagesSince(dialogId, messageId, maxItems)
+                    .stream()
+                    .map(messageService::getMessageFullResponse)
+                    .collect(Collectors.toList());
+            if (!messages.isEmpty()) {
+                sameCursor.forEach(waiter -> waiter.result.setResult(
+                        ResponseEntity.ok(new ServiceResponseDataList<>(messages))));
+            }
+        });
+    }
+
+    private void remove(long dialogId, Waiter waiter) {
+        waiters.computeIfPresent(dialogId, (id, dialogWaiters) -> {
+            dialogWaiters.remove(waiter);
+            return dialogWaiters.isEmpty() ? null : dialogWaiters;
+        });
+    }
+
+    private static final class Waiter {
+        private final long messageId;
+        private final DeferredResult<ResponseEntity<ServiceResponseDataList<MessageFullResponse>>> result;
+
+        private Waiter(long messageId,
+                       DeferredResult<ResponseEntity<ServiceResponseDataList<MessageFullResponse>>> result) {
+            this.messageId = messageId;
+            this.result = result;
+        }
+    }
+}
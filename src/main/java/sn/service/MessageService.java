@@ -1,26 +1,40 @@
 package sn.service;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import sn.api.response.MessageFullResponse;
+import sn.events.DialogMessageEvent;
+import sn.events.DialogMessageEventType;
 import sn.model.Message;
 import sn.model.Person;
 import sn.model.enums.MessageStatus;
 import sn.repositories.MessageRepository;
+import sn.repositories.UnreadMessageCounterRepository;
+import sn.utils.PageCursor;
 import sn.utils.TimeUtil;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class MessageService {
     private final DialogService dialogService;
     private final MessageRepository messageRepository;
+    private final UnreadMessageCounterRepository unreadMessageCounterRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public MessageService(
             @Lazy DialogService dialogService,
-            MessageRepository messageRepository) {
+            MessageRepository messageRepository,
+            UnreadMessageCounterRepository unreadMessageCounterRepository,
+            ApplicationEventPublisher eventPublisher) {
         this.dialogService = dialogService;
         this.messageRepository = messageRepository;
+        this.unreadMessageCounterRepository = unreadMessageCounterRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     //==================================================================================================================
@@ -36,7 +50,12 @@ public class MessageService {
     public long removeMessage(long messageId) {
         Message message = findById(messageId);
         message.setDeleted(true);
-        return messageRepository.saveAndFlush(message).getId();
+        message = messageRepository.saveAndFlush(message);
+        if (message.getDialog() != null) {
+            eventPublisher.publishEvent(new DialogMessageEvent(message.getDialog().getId(),
+                    DialogMessageEventType.MESSAGE_REMOVED, MessageFullResponse.builder().id(message.getId()).build()));
+        }
+        return message.getId();
     }
 
     public MessageFullResponse recoverMessage(long messageId) {
@@ -45,19 +64,24 @@ public class MessageService {
         return getMessageFullResponse(messageRepository.saveAndFlush(message));
     }
 
+    @Transactional
     public void readMessage(long messageId) {
+        if (messageRepository.markRead(messageId) == 0) {
+            return;
+        }
         Message message = findById(messageId);
-        message.setStatus(MessageStatus.READ);
-        messageRepository.saveAndFlush(message);
+        unreadMessageCounterRepository.decrement(message.getDialog().getId(), message.getAuthor().getId());
+        publish(message, DialogMessageEventType.MESSAGE_READ);
     }
 
     public MessageFullResponse editMessage(long messageId, String messageText) {
         Message message = findById(messageId);
         message.setMessageText(messageText);
         message = messageRepository.saveAndFlush(message);
-        return getMessageFullResponse(message);
+        return publish(message, DialogMessageEventType.MESSAGE_EDITED);
     }
 
+    @Transactional
     public MessageFullResponse sendMessage(Person author, long dialogId, String messageText) {
         Message message = new Message();
         message.setTime(TimeUtil.now());
@@ -70,10 +94,66 @@ public class MessageService {
         message.setDeleted(false);
 
         message = messageRepository.saveAndFlush(message);
-        return getMessageFullResponse(message);
+        unreadMessageCounterRepository.increment(dialogId, author.getId());
+        return publish(message, DialogMessageEventType.MESSAGE_SENT);
+    }
+
+    /**
+     * Количество непрочитанных сообщений пользователя во всех его диалогах.
+     *
+     * @param personId - ID пользователя.
+     */
+    public long getUnreadCount(long personId) {
+        return unreadMessageCounterRepository.getUnreadCount(personId);
+    }
+
+    /**
+     * Страница сообщений диалога по смещению в порядке "сначала новые".
+     *
+     * @param dialogId    - ID диалога.
+     * @param query       - строка для поиска в тексте сообщения, null или пустая строка - без фильтра.
+     * @param offset      - отступ от начала списка.
+     * @param itemPerPage - количество сообщений на страницу.
+     */
+    public List<Message> findDialogMessages(long dialogId, String query, int offset, int itemPerPage) {
+        return messageRepository.findDialogMessages(dialogId, query == null ? "" : query, offset, itemPerPage);
+    }
+
+    /**
+     * Количество сообщений диалога, подходящих под фильтр.
+     *
+     * @param dialogId - ID диалога.
+     * @param query    - строка для поиска в тексте сообщения, null или пустая строка - без фильтра.
+     */
+    public long countDialogMessages(long dialogId, String query) {
+        return messageRepository.countDialogMessages(dialogId, query == null ? "" : query);
     }
 
-    private MessageFullResponse getMessageFullResponse(Message message) {
+    /**
+     * Страница сообщений диалога, следующих после курсора, в порядке "сначала новые".
+     *
+     * @param dialogId    - ID диалога.
+     * @param query       - строка для поиска в тексте сообщения, null или пустая строка - без фильтра.
+     * @param cursor      - курсор (time, id) последнего полученного сообщения.
+     * @param itemPerPage - количество сообщений на страницу.
+     */
+    public List<Message> findDialogMessagesAfter(long dialogId, String query, PageCursor cursor, int itemPerPage) {
+        return messageRepository.findDialogMessagesAfter(dialogId, query == null ? "" : query,
+                cursor.getTime(), cursor.getId(), PageRequest.of(0, itemPerPage));
+    }
+
+    /**
+     * Сообщения диалога, созданные после указанного, в порядке отправки.
+     *
+     * @param dialogId    - ID диалога.
+     * @param messageId   - ID последнего полученного сообщения.
+     * @param itemPerPage - максимальное количество сообщений.
+     */
+    public List<Message> findDialogMessagesSince(long dialogId, long messageId, int itemPerPage) {
+        return messageRepository.findDialogMessagesSince(dialogId, messageId, PageRequest.of(0, itemPerPage));
+    }
+
+    public MessageFullResponse getMessageFullResponse(Message message) {
         return MessageFullResponse.builder()
                 .id(message.getId())
                 .time(TimeUtil.getTimestampFromLocalDateTime(message.getTime()))
@@ -83,4 +163,10 @@ public class MessageService {
                 .readStatus(message.getStatus().name())
                 .build();
     }
+
+    private MessageFullResponse publish(Message message, DialogMessageEventType type) {
+        MessageFullResponse response = getMessageFullResponse(message);
+        eventPublisher.publishEvent(new DialogMessageEvent(message.getDialog().getId(), type, response));
+        return response;
+    }
 }
@@ -0,0 +1,208 @@
+package sn.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.utils.TimeUtil;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Обслуживание помесячных секций таблицы уведомлений.
+ * Заранее создаёт секции на ближайшие месяцы, чтобы новые уведомления не попадали в секцию по умолчанию.
+ * Секции старше срока хранения копируются в архив (если он включён) и удаляются целиком;
+ * непрочитанные уведомления из них вычитаются из счётчиков. Так же по сроку хранения очищается секция по умолчанию.
+ * Если уведомления месяца уже попали в секцию по умолчанию (например, приложение долго не работало),
+ * секция месяца создаётся при отсоединённой секции по умолчанию, и уведомления переносятся в неё.
+ * Секции создаются и при запуске приложения, чтобы не ждать ночного обслуживания.
+ */
+@Slf4j
+@Component
+public class NotificationPartitionMaintainer {
+    private static final String PARTITION_PREFIX = "notification_p";
+    private static final String DEFAULT_PARTITION = "notification_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String FIND_PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i"
+            + " JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'notification'::regclass";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int createAheadMonths;
+    private final int retentionMonths;
+    private final boolean archive;
+
+    public NotificationPartitionMaintainer(JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${notifications.partitions.create-ahead-months}") int createAheadMonths,
+                                           @Value("${notifications.retention.months}") int retentionMonths,
+                                           @Value("${notifications.retention.archive}") boolean archive) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.createAheadMonths = createAheadMonths;
+        this.retentionMonths = retentionMonths;
+        this.archive = archive;
+    }
+
+    /**
+     * Начало срока хранения уведомлений: более старые секции удаляются, поэтому запросы
+     * ограничиваются этим временем и читают только актуальные секции.
+     *
+     * @return начало первого хранимого месяца, границы секций - по UTC.
+     */
+    public OffsetDateTime getRetentionStart() {
+        return monthStart(YearMonth.now(TimeUtil.TIME_ZONE).minusMonths(retentionMonths));
+    }
+
+    /**
+     * Начало срока хранения для запросов по полю Notification.sentTime.
+     * Hibernate передаёт LocalDateTime в базу в часовом поясе JVM, поэтому момент переводится в этот пояс.
+     *
+     * @return начало первого хранимого месяца в часовом поясе JVM.
+     */
+    public LocalDateTime getRetentionStartLocal() {
+        return LocalDateTime.ofInstant(getRetentionStart().toInstant(), ZoneId.systemDefault());
+    }
+
+    @Scheduled(cron = "${notifications.partitions.maintenance-cron}")
+    public void maintain() {
+        createPartitions();
+        YearMonth oldestKept = YearMonth.now(TimeUtil.TIME_ZONE).minusMonths(retentionMonths);
+        for (YearMonth month : findPartitions()) {
+            if (month.isBefore(oldestKept)) {
+                dropPartition(month);
+            }
+        }
+        purgeDefaultPartition(oldestKept);
+    }
+
+    /**
+     * Создание секций текущего месяца и create-ahead-months следующих.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createPartitions() {
+        YearMonth current = YearMonth.now(TimeUtil.TIME_ZONE);
+        for (int i = 0; i <= createAheadMonths; i++) {
+            createPartition(current.plusMonths(i));
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        try {
+            jdbcTemplate.execute(createPartitionSql(month));
+        } catch (DataAccessException e) {
+            log.warn("notification partition for {} was not created, moving its rows out of the default partition",
+                    month, e);
+            moveFromDefaultPartition(month);
+        }
+    }
+
+    /**
+     * Создание секции месяца, уведомления которого уже лежат в секции по умолчанию:
+     * секция по умолчанию отсоединяется, создаётся секция месяца, в неё переносятся уведомления,
+     * и секция по умолчанию присоединяется обратно - всё в одной транзакции.
+     */
+    private void moveFromDefaultPartition(YearMonth month) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("ALTER TABLE notification DETACH PARTITION " + DEFAULT_PARTITION);
+                jdbcTemplate.execute(createPartitionSql(month));
+                int moved = jdbcTemplate.update("INSERT INTO notification SELECT * FROM " + DEFAULT_PARTITION
+                        + " WHERE sent_time >= ? AND sent_time < ?", monthStart(month), monthStart(month.plusMonths(1)));
+                jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE sent_time >= ? AND sent_time < ?",
+                        monthStart(month), monthStart(month.plusMonths(1)));
+                jdbcTemplate.execute("ALTER TABLE notification ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+                log.info("notification partition for {} created, {} rows moved from the default partition", month, moved);
+            });
+        } catch (DataAccessException e) {
+            log.error("notification partition for {} was not created", month, e);
+        }
+    }
+
+    /**
+     * Удаление из секции по умолчанию уведомлений старше срока хранения, как при удалении секции месяца.
+     */
+    private void purgeDefaultPartition(YearMonth oldestKept) {
+        OffsetDateTime retentionStart = monthStart(oldestKept);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int archived = archive ? jdbcTemplate.update("INSERT INTO notification_archive SELECT * FROM "
+                        + DEFAULT_PARTITION + " WHERE sent_time < ?", retentionStart) : 0;
+                jdbcTemplate.update("UPDATE notification_unread u"
+                        + " SET unread_count = greatest(u.unread_count - c.unread, 0)"
+                        + " FROM (SELECT person_id, count(*) AS unread FROM " + DEFAULT_PARTITION
+                        + " WHERE is_readed = false AND sent_time < ? GROUP BY person_id) c"
+                        + " WHERE u.person_id = c.person_id", retentionStart);
+                int deleted = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE sent_time < ?",
+                        retentionStart);
+                if (deleted > 0) {
+                    log.info("{} expired notifications deleted from the default partition, {} archived",
+                            deleted, archived);
+                }
+            });
+        } catch (DataAccessException e) {
+            log.error("expired notifications were not deleted from the default partition", e);
+        }
+    }
+
+    private String createPartitionSql(YearMonth month) {
+        return String.format("CREATE TABLE IF NOT EXISTS %s PARTITION OF notification"
+                        + " FOR VALUES FROM ('%s+00') TO ('%s+00')",
+                partitionName(month), month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    private OffsetDateTime monthStart(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(TimeUtil.ZONE_OFFSET);
+    }
+
+    private List<YearMonth> findPartitions() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(FIND_PARTITIONS_SQL, String.class)) {
+            if (!name.startsWith(PARTITION_PREFIX)) {
+                continue;
+            }
+            try {
+                months.add(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+            } catch (DateTimeParseException e) {
+                log.warn("unexpected notification partition {}", name);
+            }
+        }
+        return months;
+    }
+
+    private void dropPartition(YearMonth month) {
+        String table = partitionName(month);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int archived = archive ? jdbcTemplate.update("INSERT INTO notification_archive SELECT * FROM " + table) : 0;
+                jdbcTemplate.update("UPDATE notification_unread u"
+                        + " SET unread_count = greatest(u.unread_count - c.unread, 0)"
+                        + " FROM (SELECT person_id, count(*) AS unread FROM " + table
+                        + " WHERE is_readed = false GROUP BY person_id) c"
+                        + " WHERE u.person_id = c.person_id");
+                jdbcTemplate.execute("ALTER TABLE notification DETACH PARTITION " + table);
+                jdbcTemplate.execute("DROP TABLE " + table);
+                log.info("notification partition {} dropped, {} rows archived", table, archived);
+            });
+        } catch (DataAccessException e) {
+            log.error("notification partition {} was not dropped", table, e);
+        }
+    }
+
+    private String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+}
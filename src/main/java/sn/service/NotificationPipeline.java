@@ -0,0 +1,194 @@
+package sn.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import sn.api.response.NotificationResponse;
+import sn.events.NotificationEvent;
+import sn.model.NotificationType;
+import sn.model.enums.NotificationTypeCode;
+import sn.repositories.NotificationTypeRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Асинхронное создание уведомлений.
+ * Доменные события ставятся в ограниченную очередь без ожидания; если очередь заполнена, событие
+ * отбрасывается. Отдельный поток разбирает очередь пачками, отсеивает получателей, отключивших тип уведомлений,
+ * и вставляет уведомления одним многострочным INSERT ... RETURNING вместе с увеличением счётчиков непрочитанных,
+ * после чего отправляет их в поток уведомлений.
+ */
+@Slf4j
+@Component
+public class NotificationPipeline {
+    private static final int INFO_MAX_LENGTH = 255;
+    private static final int INSERT_MAX_ROWS = 1000;
+    private static final String INSERT_SQL_HEAD = "WITH inserted AS (INSERT INTO notification"
+            + " (type_id, sent_time, entity_id, info, person_id, contact, is_readed)"
+            + " SELECT v.type_id, now(), v.entity_id, v.info, p.id, coalesce(p.e_mail, ''), false"
+            + " FROM (VALUES ";
+    private static final String INSERT_VALUES_ROW = "(?::int8, ?::int8, ?::varchar, ?::int8)";
+    private static final String INSERT_SQL_TAIL = ") AS v(type_id, entity_id, info, person_id)"
+            + " JOIN person p ON p.id = v.person_id"
+            + " RETURNING id, type_id, sent_time, entity_id, info, person_id),"
+            + " counted AS (INSERT INTO notification_unread (person_id, unread_count)"
+            + " SELECT person_id, count(*) FROM inserted GROUP BY person_id"
+            + " ON CONFLICT (person_id) DO UPDATE"
+            + " SET unread_count = notification_unread.unread_count + excluded.unread_count)"
+            + " SELECT id, type_id, sent_time, entity_id, info, person_id FROM inserted";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationTypeRepository notificationTypeRepository;
+    private final NotificationSettingsCache notificationSettingsCache;
+    private final NotificationService notificationService;
+    private final BlockingQueue<NotificationEvent> queue;
+    private final int batchSize;
+    private final LongAdder dropped = new LongAdder();
+    private volatile Map<NotificationTypeCode, Long> typeIds;
+    private volatile Thread worker;
+
+    public NotificationPipeline(JdbcTemplate jdbcTemplate,
+                                NotificationTypeRepository notificationTypeRepository,
+                                NotificationSettingsCache notificationSettingsCache,
+                                NotificationService notificationService,
+                                @Value("${notifications.pipeline.queue-capacity}") int queueCapacity,
+                                @Value("${notifications.pipeline.batch-size}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationTypeRepository = notificationTypeRepository;
+        this.notificationSettingsCache = notificationSettingsCache;
+        this.notificationService = notificationService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = new Thread(this::run, "notification-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread current = worker;
+        worker = null;
+        current.interrupt();
+        current.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Постановка события в очередь без ожидания.
+     *
+     * @param event - доменное событие.
+     * @return false, если очередь заполнена и событие отброшено.
+     */
+    public boolean submit(NotificationEvent event) {
+        if (queue.offer(event)) {
+            return true;
+        }
+        dropped.increment();
+        log.warn("notification queue is full, {} events dropped so far", dropped.sum());
+        return false;
+    }
+
+    private void run() {
+        List<NotificationEvent> batch = new ArrayList<>(batchSize);
+        while (worker != null || !queue.isEmpty()) {
+            try {
+                if (worker != null) {
+                    NotificationEvent first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                if (!batch.isEmpty()) {
+                    process(batch);
+                }
+            } catch (InterruptedException e) {
+                if (worker != null) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.error("notification batch of {} events failed", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<NotificationEvent> events) {
+        Map<NotificationTypeCode, Long> types = getTypeIds();
+        Set<Long> recipients = events.stream()
+                .flatMap(event -> event.getRecipientIds().stream())
+                .collect(Collectors.toSet());
+        Map<Long, Integer> enabledMasks = notificationSettingsCache.getEnabledMasks(recipients);
+        List<Object[]> rows = new ArrayList<>();
+        for (NotificationEvent event : events) {
+            Long typeId = types.get(event.getType());
+            if (typeId == null) {
+                continue;
+            }
+            String info = event.getInfo() != null && event.getInfo().length() > INFO_MAX_LENGTH
+                    ? event.getInfo().substring(0, INFO_MAX_LENGTH) : event.getInfo();
+            for (Long recipientId : event.getRecipientIds()) {
+                if (recipientId == event.getAuthorId() || !NotificationSettingsCache.isEnabled(
+                        enabledMasks.getOrDefault(recipientId, NotificationSettingsCache.ALL_ENABLED),
+                        event.getType())) {
+                    continue;
+                }
+                rows.add(new Object[]{typeId, event.getEntityId(), info, recipientId});
+            }
+        }
+        for (int from = 0; from < rows.size(); from += INSERT_MAX_ROWS) {
+            insert(rows.subList(from, Math.min(from + INSERT_MAX_ROWS, rows.size())));
+        }
+        log.debug("created {} notifications from {} events", rows.size(), events.size());
+    }
+
+    private void insert(List<Object[]> rows) {
+        List<Object> args = new ArrayList<>(rows.size() * 4);
+        rows.forEach(row -> Collections.addAll(args, row));
+        String sql = INSERT_SQL_HEAD + String.join(", ", Collections.nCopies(rows.size(), INSERT_VALUES_ROW))
+                + INSERT_SQL_TAIL;
+        jdbcTemplate.query(sql, args.toArray(), (rs, rowNum) -> {
+            Timestamp sentTime = rs.getTimestamp("sent_time");
+            notificationService.publishCreated(rs.getLong("person_id"), NotificationResponse.builder()
+                    .id(rs.getLong("id"))
+                    .typeId(rs.getLong("type_id"))
+                    .sentTime(sentTime.toInstant().getEpochSecond())
+                    .entityId(rs.getLong("entity_id"))
+                    .info(rs.getString("info"))
+                    .build());
+            return null;
+        });
+    }
+
+    private Map<NotificationTypeCode, Long> getTypeIds() {
+        Map<NotificationTypeCode, Long> cached = typeIds;
+        if (cached == null) {
+            cached = new EnumMap<>(NotificationTypeCode.class);
+            for (NotificationType type : notificationTypeRepository.findAll()) {
+                cached.merge(type.getCode(), type.getId(), Math::min);
+            }
+            typeIds = cached;
+        }
+        return cached;
+    }
+}
@@ -1,17 +1,26 @@
 package sn.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
 import sn.api.requests.NotificationSettingRequest;
+import sn.api.response.CountResponse;
+import sn.api.response.IdResponse;
 import sn.api.response.NotificationResponse;
 import sn.api.response.ResponseDataMessage;
 import sn.api.response.ServiceResponse;
 import sn.api.response.ServiceResponseDataList;
+import sn.events.NotificationCreatedEvent;
 import sn.model.Notification;
 import sn.model.NotificationSettings;
 import sn.model.NotificationType;
@@ -20,7 +29,10 @@ import sn.model.enums.NotificationTypeCode;
 import sn.repositories.NotificationRepository;
 import sn.repositories.NotificationSettingsRepository;
 import sn.repositories.NotificationTypeRepository;
+import sn.repositories.UnreadNotificationCounterRepository;
+import sn.utils.PageCursor;
 import sn.utils.TimeUtil;
+import sn.utils.TransactionUtil;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,7 +48,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class NotificationService {
 
+    public static final String STREAM_EVENT_NAME = "notification";
+    public static final String STREAM_TRUNCATED_EVENT_NAME = "notification_replay_truncated";
     private final static String DATE_FILED_SORT = "sentTime";
+    private final static String READ_ALL_SQL = "UPDATE notification SET is_readed = true"
+            + " WHERE person_id = ? AND is_readed = false AND sent_time >= ? AND id <= ?"
+            + " RETURNING id";
 
     private final ConcurrentHashMap<NotificationTypeCode, NotificationType> notificationTypeMap
                             = new ConcurrentHashMap<>();
@@ -44,6 +61,14 @@ public class NotificationService {
     private final NotificationRepository notificationRepository;
     private final NotificationSettingsRepository notificationSettingsRepository;
     private final NotificationTypeRepository notificationTypeRepository;
+    private final UnreadNotificationCounterRepository unreadNotificationCounterRepository;
+    private final NotificationPartitionMaintainer notificationPartitionMaintainer;
+    private final JdbcTemplate jdbcTemplate;
+    private final EventStreamRegistry eventStreamRegistry;
+    private final NotificationSettingsCache notificationSettingsCache;
+    private final ApplicationEventPublisher eventPublisher;
+    @Value("${notifications.stream.replay-max-items}")
+    private int replayMaxItems;
 
     /**
      * Метод getNotificationByPage.
@@ -56,30 +81,125 @@ public class NotificationService {
      */
     public ServiceResponseDataList<NotificationResponse> getNotificationByPage(Person person, int offset, int perPage){
         Pageable pageable = PageRequest.of(offset, perPage, Sort.Direction.DESC, DATE_FILED_SORT);
-        Page<Notification> pageResponse = notificationRepository.findByToWhomAndIsReadedFalse(person, pageable);
+        Page<Notification> pageResponse = notificationRepository.findByToWhomAndIsReadedFalseAndSentTimeGreaterThanEqual(person,
+                notificationPartitionMaintainer.getRetentionStartLocal(), pageable);
         int total = (int)pageResponse.getTotalElements();
         List<NotificationResponse> response = convertNotificationListToNotificationResponseList(pageResponse.getContent());
 
-        return new ServiceResponseDataList<>(total, offset, perPage, response);
+        ServiceResponseDataList<NotificationResponse> result = new ServiceResponseDataList<>(total, offset, perPage, response);
+        result.setNext(getNextCursor(pageResponse.getContent(), pageResponse.hasNext()));
+        return result;
     }
 
     /**
-     * Метод readAllNotification.
-     * Читает (берет из базы и устанавливает признак "прочитано") все нотификации для пользователя.
+     * Метод getNotificationAfter.
+     * Чтение страницы нотификаций, следующих после курсора (sentTime, id).
      *
      * @param person пользователь читающий список нотификаций.
+     * @param cursor курсор последней полученной нотификации.
+     * @param perPage количество на странице.
      * @return ServiceResponseDataList<NotificationResponse>
      */
+    public ServiceResponseDataList<NotificationResponse> getNotificationAfter(Person person, PageCursor cursor, int perPage){
+        List<Notification> notifications = notificationRepository.findUnreadAfter(person, cursor.getTime(),
+                                                                                    cursor.getId(),
+                                                                                    notificationPartitionMaintainer.getRetentionStartLocal(),
+                                                                                    PageRequest.of(0, perPage + 1));
+        boolean hasMore = notifications.size() > perPage;
+        if (hasMore) {
+            notifications = notifications.subList(0, perPage);
+        }
+        List<NotificationResponse> response = convertNotificationListToNotificationResponseList(notifications);
+
+        ServiceResponseDataList<NotificationResponse> result = new ServiceResponseDataList<>(response);
+        result.setPerPage(perPage);
+        result.setNext(getNextCursor(notifications, hasMore));
+        return result;
+    }
+
+    /**
+     * Метод subscribe.
+     * Подключение к потоку новых уведомлений пользователя.
+     * Если передан ID последнего полученного уведомления, сначала досылаются непрочитанные уведомления новее него
+     * (не более notifications.stream.replay-max-items), затем идут новые. Если пропущено больше,
+     * после досланных приходит событие notification_replay_truncated с ID последнего досланного уведомления -
+     * остальные клиент читает списком. Уведомление, созданное во время подключения,
+     * может прийти дважды - клиент отбрасывает повторы по ID.
+     *
+     * @param person пользователь, получающий уведомления.
+     * @param lastEventId ID последнего полученного уведомления (Last-Event-ID), null - без досылки.
+     * @return поток событий.
+     */
+    public SseEmitter subscribe(Person person, String lastEventId) {
+        if (lastEventId == null) {
+            return eventStreamRegistry.connect(EventStreamRegistry.Channel.NOTIFICATIONS, person.getId());
+        }
+        long lastId;
+        try {
+            lastId = Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            lastId = Long.MAX_VALUE;
+        }
+        long sinceId = lastId;
+        return eventStreamRegistry.connect(EventStreamRegistry.Channel.NOTIFICATIONS, person.getId(),
+                () -> findMissed(person.getId(), sinceId));
+    }
+
+    private List<SseEventBuilder> findMissed(long personId, long lastId) {
+        List<Notification> notifications = notificationRepository.findUnreadSince(personId, lastId,
+                notificationPartitionMaintainer.getRetentionStartLocal(), PageRequest.of(0, replayMaxItems + 1));
+        List<SseEventBuilder> missed = new ArrayList<>();
+        notifications.stream().limit(replayMaxItems).forEach(notification -> missed.add(SseEmitter.event()
+                .name(STREAM_EVENT_NAME)
+                .id(String.valueOf(notification.getId()))
+                .data(convertNotificationToNotificationResponse(notification), MediaType.APPLICATION_JSON)));
+        if (notifications.size() > replayMaxItems) {
+            long lastReplayedId = replayMaxItems == 0 ? lastId : notifications.get(replayMaxItems - 1).getId();
+            missed.add(SseEmitter.event()
+                    .name(STREAM_TRUNCATED_EVENT_NAME)
+                    .data(lastReplayedId, MediaType.APPLICATION_JSON));
+        }
+        return missed;
+    }
+
+    /**
+     * Метод publishCreated.
+     * Отправка созданного уведомления получателю в поток уведомлений после фиксации транзакции.
+     *
+     * @param personId ID получателя.
+     * @param notification сохранённое уведомление.
+     */
+    public void publishCreated(long personId, NotificationResponse notification) {
+        eventPublisher.publishEvent(new NotificationCreatedEvent(personId, notification));
+    }
+
+    /**
+     * Метод readAllNotification.
+     * Устанавливает признак "прочитано" всем непрочитанным нотификациям пользователя одним запросом.
+     * Возвращаются только ID прочитанных нотификаций: содержимое у клиента уже есть, а у пользователя
+     * могут быть тысячи непрочитанных.
+     *
+     * @param person пользователь читающий список нотификаций.
+     * @param upToId ID последней нотификации, которую видел пользователь; более новые не читаются.
+     *               Если не указан, читаются все.
+     * @return ServiceResponseDataList<IdResponse> ID прочитанных нотификаций, total - их количество.
+     */
     @Transactional
-    public ServiceResponseDataList<NotificationResponse> readAllNotification(Person person){
-        List<Notification> notificationList = notificationRepository.findAllByToWhomAndIsReadedFalse(person);
+    public ServiceResponseDataList<IdResponse> readAllNotification(Person person, Long upToId){
+        List<IdResponse> notificationList = jdbcTemplate.query(READ_ALL_SQL,
+                (rs, rowNum) -> {
+                    IdResponse idResponse = new IdResponse();
+                    idResponse.setId(rs.getLong("id"));
+                    return idResponse;
+                },
+                person.getId(), notificationPartitionMaintainer.getRetentionStart(),
+                upToId == null ? Long.MAX_VALUE : upToId);
 
         if(!notificationList.isEmpty()){
-            notificationList.parallelStream().forEach(notification -> notification.setReaded(true));
-            notificationRepository.saveAll(notificationList);
+            unreadNotificationCounterRepository.decrement(person.getId(), notificationList.size());
         }
 
-        return new ServiceResponseDataList<>(convertNotificationListToNotificationResponseList(notificationList));
+        return new ServiceResponseDataList<>(notificationList);
     }
 
     /**
@@ -105,11 +225,25 @@ public class NotificationService {
         Notification notification = notificationOptional.get();
         notification.setReaded(true);
         notificationRepository.save(notification);
+        unreadNotificationCounterRepository.decrement(notification.getToWhom().getId(), 1);
 
         notificationResponseList.add(convertNotificationToNotificationResponse(notification));
         return new ServiceResponseDataList<>(notificationResponseList);
     }
 
+    /**
+     * Метод getUnreadCount.
+     * Количество непрочитанных нотификаций пользователя из счётчика, без подсчёта по таблице нотификаций.
+     *
+     * @param person пользователь.
+     * @return ServiceResponse<CountResponse>
+     */
+    public ServiceResponse<CountResponse> getUnreadCount(Person person) {
+        return new ServiceResponse<>(CountResponse.builder()
+                .count(unreadNotificationCounterRepository.getUnreadCount(person.getId()))
+                .build());
+    }
+
     /**
      * Метод saveNotificationSettings.
      * Снимает или устанавливает настройку.
@@ -137,6 +271,8 @@ public class NotificationService {
 
         setting.setEnable(request.isEnable());
         notificationSettingsRepository.save(setting);
+        TransactionUtil.afterCommit(() -> notificationSettingsCache.update(person.getId(),
+                request.getNotificationType(), request.isEnable()));
 
         return new ServiceResponse<>(ResponseDataMessage.ok());
     }
@@ -156,6 +292,14 @@ public class NotificationService {
         return new ServiceResponse<>(ResponseDataMessage.ok());
     }
 
+    private String getNextCursor(List<Notification> notifications, boolean hasMore) {
+        if (!hasMore || notifications.isEmpty()) {
+            return null;
+        }
+        Notification last = notifications.get(notifications.size() - 1);
+        return PageCursor.toToken(last.getSentTime(), last.getId());
+    }
+
     private List<NotificationResponse> convertNotificationListToNotificationResponseList(List<Notification> listNotification){
         return listNotification.parallelStream()
                 .map(this::convertNotificationToNotificationResponse)
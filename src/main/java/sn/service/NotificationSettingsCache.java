@@ -0,0 +1,114 @@
+package sn.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sn.model.enums.NotificationTypeCode;
+import sn.repositories.NotificationSettingsRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш включённых типов уведомлений пользователей.
+ * Настройки пользователя хранятся одним числом: бит с номером типа установлен, если тип включён.
+ * Тип без настройки считается включённым. Недостающие в кэше пользователи загружаются одним запросом,
+ * изменения настроек записываются в кэш сразу после сохранения.
+ * Каждое изменение увеличивает номер поколения; маски, загрузка которых пересеклась с изменением,
+ * возвращаются вызывающему, но не кэшируются - они могли быть прочитаны до фиксации изменения.
+ */
+@Component
+public class NotificationSettingsCache {
+    public static final int ALL_ENABLED = (1 << NotificationTypeCode.values().length) - 1;
+
+    private final NotificationSettingsRepository notificationSettingsRepository;
+    private final Map<Long, Integer> enabledMasks;
+    private long generation;
+
+    public NotificationSettingsCache(NotificationSettingsRepository notificationSettingsRepository,
+                                     @Value("${notifications.settings-cache.max-size}") int maxSize) {
+        this.notificationSettingsRepository = notificationSettingsRepository;
+        this.enabledMasks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Проверка, включён ли тип уведомлений в маске.
+     *
+     * @param mask - маска включённых типов.
+     * @param type - тип уведомлений.
+     * @return true, если тип включён.
+     */
+    public static boolean isEnabled(int mask, NotificationTypeCode type) {
+        return (mask & bit(type)) != 0;
+    }
+
+    /**
+     * Маски включённых типов уведомлений пользователей.
+     *
+     * @param personIds - ID пользователей.
+     * @return маска включённых типов по ID пользователя.
+     */
+    public Map<Long, Integer> getEnabledMasks(Collection<Long> personIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        List<Long> missing;
+        long loadGeneration;
+        synchronized (enabledMasks) {
+            loadGeneration = generation;
+            missing = personIds.stream()
+                    .distinct()
+                    .filter(personId -> {
+                        Integer cached = enabledMasks.get(personId);
+                        if (cached != null) {
+                            result.put(personId, cached);
+                        }
+                        return cached == null;
+                    })
+                    .collect(Collectors.toList());
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        Map<Long, Integer> loaded = new HashMap<>();
+        missing.forEach(personId -> loaded.put(personId, ALL_ENABLED));
+        for (Object[] row : notificationSettingsRepository.findDisabledTypes(missing)) {
+            loaded.computeIfPresent((Long) row[0], (personId, mask) -> mask & ~bit((NotificationTypeCode) row[1]));
+        }
+        synchronized (enabledMasks) {
+            if (generation != loadGeneration) {
+                result.putAll(loaded);
+                return result;
+            }
+            loaded.forEach((personId, mask) -> result.put(personId, enabledMasks.merge(personId, mask,
+                    (cached, fresh) -> cached)));
+        }
+        return result;
+    }
+
+    /**
+     * Запись изменённой настройки в кэш.
+     * Если пользователя нет в кэше, его настройки будут прочитаны из базы при следующем обращении;
+     * идущие в это время загрузки не попадут в кэш. Вызывается после фиксации изменения.
+     *
+     * @param personId - ID пользователя.
+     * @param type     - тип уведомлений.
+     * @param enable   - включён ли тип.
+     */
+    public void update(long personId, NotificationTypeCode type, boolean enable) {
+        synchronized (enabledMasks) {
+            generation++;
+            enabledMasks.computeIfPresent(personId, (id, mask) -> enable ? mask | bit(type) : mask & ~bit(type));
+        }
+    }
+
+    private static int bit(NotificationTypeCode type) {
+        return 1 << type.ordinal();
+    }
+}
@@ -0,0 +1,106 @@
+package sn.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sn.model.Person;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш снимков пользователей по ID.
+ * Снимок - копия скалярных полей Person без коллекций, пароля и кода подтверждения, не связанная с сессией Hibernate.
+ * Каждый вызов get возвращает новую копию, поэтому изменения снимка вызывающим кодом не попадают в кэш.
+ * Запись живёт не дольше user.cache.ttl-ms и удаляется при изменении пользователя.
+ */
+@Component
+public class PersonSnapshotCache {
+    private final long ttlMillis;
+    private final Map<Long, Snapshot> snapshots;
+
+    public PersonSnapshotCache(@Value("${user.cache.max-size}") int maxSize,
+                               @Value("${user.cache.ttl-ms}") long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Snapshot> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Снимок пользователя.
+     *
+     * @param personId - ID пользователя.
+     * @return копия снимка или null, если снимка нет или он устарел.
+     */
+    public Person get(long personId) {
+        Snapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(personId);
+            if (snapshot != null && snapshot.expiresAt <= System.currentTimeMillis()) {
+                snapshots.remove(personId);
+                snapshot = null;
+            }
+        }
+        return snapshot == null ? null : copyOf(snapshot.person);
+    }
+
+    /**
+     * Сохранение снимка пользователя.
+     *
+     * @param person - пользователь, загруженный из базы.
+     * @return копия сохранённого снимка.
+     */
+    public Person put(Person person) {
+        Snapshot snapshot = new Snapshot(copyOf(person), System.currentTimeMillis() + ttlMillis);
+        synchronized (snapshots) {
+            snapshots.put(person.getId(), snapshot);
+        }
+        return copyOf(snapshot.person);
+    }
+
+    /**
+     * Удаление снимка после изменения пользователя.
+     *
+     * @param personId - ID пользователя.
+     */
+    public void invalidate(long personId) {
+        synchronized (snapshots) {
+            snapshots.remove(personId);
+        }
+    }
+
+    private static Person copyOf(Person person) {
+        Person copy = new Person();
+        copy.setId(person.getId());
+        copy.setFirstName(person.getFirstName());
+        copy.setLastName(person.getLastName());
+        copy.setRegDate(person.getRegDate());
+        copy.setBirthDate(person.getBirthDate());
+        copy.setEmail(person.getEmail());
+        copy.setPhone(person.getPhone());
+        copy.setPhoto(person.getPhoto());
+        copy.setAbout(person.getAbout());
+        copy.setCity(person.getCity());
+        copy.setCountry(person.getCountry());
+        copy.setApproved(person.isApproved());
+        copy.setMessagesPermission(person.getMessagesPermission());
+        copy.setLastOnlineTime(person.getLastOnlineTime());
+        copy.setBlocked(person.isBlocked());
+        copy.setOnline(person.isOnline());
+        copy.setDeleted(person.isDeleted());
+        return copy;
+    }
+
+    private static final class Snapshot {
+        private final Person person;
+        private final long expiresAt;
+
+        private Snapshot(Person person, long expiresAt) {
+            this.person = person;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package sn.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -10,13 +11,16 @@ import org.springframework.stereotype.Service;
 import sn.api.requests.PostCommentCreateRequest;
 import sn.api.requests.PostEditRequest;
 import sn.api.response.*;
+import sn.events.NotificationEvent;
 import sn.model.Comment;
 import sn.model.Person;
 import sn.model.Post;
 import sn.model.enums.LikeType;
+import sn.model.enums.NotificationTypeCode;
 import sn.model.enums.StatusWallPost;
 import sn.repositories.CommentRepository;
 import sn.repositories.PostRepository;
+import sn.utils.PageCursor;
 import sn.utils.TimeUtil;
 
 import java.time.Instant;
@@ -24,23 +28,34 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class PostService {
 
+    private static final LocalDateTime SEARCH_DATE_MIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime SEARCH_DATE_MAX = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     private final PostRepository postRepository;
     private final AccountService accountService;
     private final CommentService commentService;
     private final CommentRepository commentRepository;
+    private final LikeCounterBuffer likeCounterBuffer;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Lazy
     public PostService(PostRepository postRepository, AccountService accountService,
-        CommentService commentService, CommentRepository commentRepository) {
+        CommentService commentService, CommentRepository commentRepository,
+        LikeCounterBuffer likeCounterBuffer, ApplicationEventPublisher eventPublisher) {
         this.postRepository = postRepository;
         this.accountService = accountService;
         this.commentService = commentService;
         this.commentRepository = commentRepository;
+        this.likeCounterBuffer = likeCounterBuffer;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -71,6 +86,19 @@ public class PostService {
         return postRepository.findAllByPersonId(personId, pageable);
     }
 
+    /**
+     * Получение записей на стене пользователя, следующих после курсора.
+     *
+     * @param personId    - ID пользователя, со стены которого требуется получить записи.
+     * @param cursor      - курсор (time, id) последней полученной записи.
+     * @param itemPerPage - Количество публикаций, которые представлены для отображения.
+     * @return - страница публикаций на стене пользователя, начиная с самой новой после курсора.
+     */
+    public List<Post> findAllByPersonIdAfter(long personId, PageCursor cursor, int itemPerPage) {
+        return postRepository.findAllByPersonIdAfter(personId, cursor.getTime(), cursor.getId(),
+            PageRequest.of(0, itemPerPage));
+    }
+
     /**
      * Добавление новой публикации.
      *
@@ -114,7 +142,7 @@ public class PostService {
             .title(post.getTitle())
             .postText(post.getText())
             .isBlocked(post.isBlocked())
-            .likesCount(post.getLikesCount())
+            .likesCount(getLikesCount(post))
             .comments(new ArrayList<>())
             .build();
     }
@@ -136,7 +164,7 @@ public class PostService {
             .title(post.getTitle())
             .postText(post.getText())
             .isBlocked(post.isBlocked())
-            .likesCount(post.getLikesCount())
+            .likesCount(getLikesCount(post))
             .comments(comments)
             .statusWallPost(StatusWallPost.POSTED)
             .build();
@@ -152,61 +180,76 @@ public class PostService {
     }
 
     /**
-     * Метод findPosts. Поиск публикации.
+     * Метод findPosts. Полнотекстовый поиск публикаций по заголовку и тексту.
+     * Результаты упорядочены по релевантности, затем по убыванию времени.
      *
-     * @param text        текст публикации.
-     * @param dateFrom    Дата публикации ОТ.
-     * @param dateTo      Дата публикации ДО.
+     * @param text        поисковый запрос, null или пустая строка - без фильтра по тексту.
+     * @param dateFrom    Дата публикации ОТ, null - без ограничения.
+     * @param dateTo      Дата публикации ДО, null - без ограничения.
      * @param offset      Отступ от начала списка.
      * @param itemPerPage Количество элементов на страницу.
-     * @return возвращает список публикации
+     * @return возвращает страницу найденных публикаций
      */
-    public List<PostResponse> findPosts(String text, long dateFrom, long dateTo,
+    public ServiceResponseDataList<PostResponse> findPosts(String text, Long dateFrom, Long dateTo,
         int offset, int itemPerPage) {
-        int pageNumber = offset / itemPerPage;
-        Sort sort = Sort.by(Sort.Direction.DESC, PostRepository.POST_TIME);
-        Pageable pageable = PageRequest.of(pageNumber, itemPerPage, sort);
+        String query = text == null ? "" : text.trim();
+        LocalDateTime localDateFrom = toSearchDate(dateFrom, SEARCH_DATE_MIN);
+        LocalDateTime localDateTo = toSearchDate(dateTo, SEARCH_DATE_MAX);
+        List<Post> posts = postRepository.searchPosts(query, localDateFrom, localDateTo, offset, itemPerPage);
+        int total = (int) postRepository.countSearchPosts(query, localDateFrom, localDateTo);
+        return getSearchPage(total, offset, itemPerPage, posts);
+    }
 
+    /**
+     * Метод findPostsAfter. Полнотекстовый поиск публикаций с постраничной выдачей по курсору.
+     * Результаты упорядочены по убыванию времени.
+     *
+     * @param text        поисковый запрос, null или пустая строка - без фильтра по тексту.
+     * @param dateFrom    Дата публикации ОТ, null - без ограничения.
+     * @param dateTo      Дата публикации ДО, null - без ограничения.
+     * @param cursor      курсор (time, id) последней полученной публикации.
+     * @param itemPerPage Количество элементов на страницу.
+     * @return возвращает страницу найденных публикаций и курсор следующей страницы.
+     * Количество найденных публикаций по курсору не считается: total - оценка, равная размеру страницы
+     * плюс один, если есть следующая страница.
+     */
+    public ServiceResponseDataList<PostResponse> findPostsAfter(String text, Long dateFrom, Long dateTo,
+        PageCursor cursor, int itemPerPage) {
+        String query = text == null ? "" : text.trim();
+        int pageSize = Math.max(itemPerPage, 0);
+        List<Post> posts = postRepository.searchPostsAfter(query, toSearchDate(dateFrom, SEARCH_DATE_MIN),
+            toSearchDate(dateTo, SEARCH_DATE_MAX), cursor.getTime(), cursor.getId(), pageSize + 1);
+        boolean hasMore = posts.size() > pageSize;
+        List<Post> page = hasMore ? posts.subList(0, pageSize) : posts;
+        ServiceResponseDataList<PostResponse> response =
+            getSearchPage(page.size() + (hasMore ? 1 : 0), 0, itemPerPage, page);
+        if (hasMore && !page.isEmpty()) {
+            Post last = page.get(page.size() - 1);
+            response.setNext(PageCursor.toToken(last.getTime(), last.getId()));
+        }
+        return response;
+    }
+
+    private LocalDateTime toSearchDate(Long date, LocalDateTime defaultDate) {
         // если время в посте не будем менять на лонг, то оставляем так
-        LocalDateTime localDateFrom = LocalDateTime.ofInstant(
-            Instant.ofEpochMilli(dateFrom), ZoneId.systemDefault());
-        LocalDateTime localDateTo = LocalDateTime.ofInstant(
-            Instant.ofEpochMilli(dateTo), ZoneId.systemDefault());
-        List<Post> posts = postRepository.findAllByTextAndTime
-            (text, localDateFrom, localDateTo, pageable);
-
-        List<PostResponse> response = new ArrayList<>();
+        return date == null ? defaultDate
+            : LocalDateTime.ofInstant(Instant.ofEpochMilli(date), ZoneId.systemDefault());
+    }
+
+    private ServiceResponseDataList<PostResponse> getSearchPage(int total, int offset, int itemPerPage,
+        List<Post> posts) {
+        Map<Long, List<CommentResponse>> comments = commentService.getCommentsByPostIds(
+            posts.stream().map(Post::getId).collect(Collectors.toList()));
+        List<PostResponse> data = new ArrayList<>();
         for (Post post : posts) {
-            PostResponse postResponse = new PostResponse();
-            postResponse.setId(post.getId());
-
-            // если время в посте не будем менять на лонг, то оставляем так:
-            ZonedDateTime zdt = ZonedDateTime.of(post.getTime(),
-                ZoneId.systemDefault());
-            postResponse.setTime(zdt.toInstant().toEpochMilli());
-
-            // С учётом удаления PersonService:
-            postResponse.setAuthor
-                (accountService.getPersonResponse(post.getAuthor()));
-
-            postResponse.setTitle(post.getTitle());
-            postResponse.setPostText(post.getText());
-            postResponse.setBlocked(post.isBlocked());
-            postResponse.setLikes(post.getLikesCount());
-            postResponse.setComments(commentService.getCommentsByPostId(
-                post.getId()));
+            PostResponse postResponse = getPostResponse(post);
+            postResponse.setComments(comments.getOrDefault(post.getId(), Collections.emptyList()));
+            data.add(postResponse);
         }
-        return response;
+        return new ServiceResponseDataList<>(total, offset, itemPerPage, data);
     }
 
-    /**
-     * Метод findPostById. Поиск публикации.
-     *
-     * @param id ID публикации.
-     * @return возвращает публикацию.
-     */
-    public PostResponse findPostById(long id) {
-        Post post = findById(id);
+    private PostResponse getPostResponse(Post post) {
         PostResponse postResponse = new PostResponse();
         postResponse.setId(post.getId());
 
@@ -222,7 +265,19 @@ public class PostService {
         postResponse.setTitle(post.getTitle());
         postResponse.setPostText(post.getText());
         postResponse.setBlocked(post.isBlocked());
-        postResponse.setLikes(post.getLikesCount());
+        postResponse.setLikes(getLikesCount(post));
+        return postResponse;
+    }
+
+    /**
+     * Метод findPostById. Поиск публикации.
+     *
+     * @param id ID публикации.
+     * @return возвращает публикацию.
+     */
+    public PostResponse findPostById(long id) {
+        Post post = findById(id);
+        PostResponse postResponse = getPostResponse(post);
         postResponse.setComments(commentService.getCommentsByPostId(
             post.getId()));
 
@@ -264,7 +319,7 @@ public class PostService {
         postResponse.setTitle(post.getTitle());
         postResponse.setPostText(post.getText());
         postResponse.setBlocked(post.isBlocked());
-        postResponse.setLikes(post.getLikesCount());
+        postResponse.setLikes(getLikesCount(post));
         postResponse.setComments(commentService.getCommentsByPostId(
             post.getId()));
 
@@ -312,7 +367,7 @@ public class PostService {
         postResponse.setTitle(post.getTitle());
         postResponse.setPostText(post.getText());
         postResponse.setBlocked(post.isBlocked());
-        postResponse.setLikes(post.getLikesCount());
+        postResponse.setLikes(getLikesCount(post));
         postResponse.setComments(commentService.getCommentsByPostId(
             post.getId()));
 
@@ -359,38 +414,56 @@ public class PostService {
     }
 
     /**
-     * Метод увеличивет счетчик лайков
+     * Счётчик лайков поста с учётом ещё не записанных в базу изменений.
+     *
+     * @param post - пост;
+     * @return - количество лайков.
+     */
+    public int getLikesCount(Post post) {
+        return (int) (post.getLikesCount() + likeCounterBuffer.getPending(post.getId()));
+    }
+
+    /**
+     * Метод увеличивет счетчик лайков.
+     * Изменение накапливается в LikeCounterBuffer и записывается в базу пакетом.
      *
      * @param postId - идентификатор поста;
      */
     public void incLikesCount(long postId) {
-        Post post = findById(postId);
-        post.setLikesCount(post.getLikesCount() + 1);
-        postRepository.saveAndFlush(post);
+        likeCounterBuffer.add(postId, 1);
     }
 
     /**
      * Метод уменьшает счетик лайков.
+     * Изменение накапливается в LikeCounterBuffer и записывается в базу пакетом.
      *
      * @param postId - идентификатор поста;
      */
     public void decLikesCount(long postId) {
-        Post post = findById(postId);
-        post.setLikesCount(post.getLikesCount() - 1);
-        postRepository.saveAndFlush(post);
+        likeCounterBuffer.add(postId, -1);
     }
 
     public CommentResponse createPostComment(long id,
         PostCommentCreateRequest postCommentCreateRequest) {
 
         Comment comment = new Comment();
+        Person author = findCurrentUser();
 
-        if (postRepository.findById(id).isPresent()) {
+        if (author != null && postRepository.findById(id).isPresent()) {
             Post post = postRepository.findById(id).get();
-            comment.setParent(commentService.findById(postCommentCreateRequest.getParentId()));
+            Comment parent = commentService.findById(postCommentCreateRequest.getParentId());
+            comment.setParent(parent);
+            comment.setPost(post);
+            comment.setAuthor(author);
+            comment.setTime(TimeUtil.now());
             comment.setText(postCommentCreateRequest.getCommentText());
             commentRepository.save(comment);
             post.getComments().add(comment);
+            eventPublisher.publishEvent(parent == null
+                ? new NotificationEvent(NotificationTypeCode.POST_COMMENT, List.of(post.getAuthor().getId()),
+                    author.getId(), comment.getId(), comment.getText())
+                : new NotificationEvent(NotificationTypeCode.COMMENT_COMMENT, List.of(parent.getAuthor().getId()),
+                    author.getId(), comment.getId(), comment.getText()));
             return commentToCommentResponse(comment);
         } else {
             return new CommentResponse();
@@ -0,0 +1,202 @@
+package sn.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sn.api.response.UserActivityResponse;
+import sn.repositories.PersonRepository;
+import sn.utils.TimeUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Присутствие пользователей в сети.
+ * Каждый запрос пользователя отмечается в памяти (heartbeat), статус "в сети" и время последней активности
+ * отдаются из памяти. В таблицу person время последней активности и флаг is_online записываются
+ * периодически одним пакетом. Время пользователей, не заходивших после запуска приложения,
+ * загружается из базы один раз и дальше берётся из памяти; в памяти хранится не больше
+ * presence.cache.max-size давно не запрашивавшихся пользователей, отсутствие пользователя тоже запоминается.
+ * При запуске флаг is_online снимается со всех пользователей: статус, записанный до перезапуска,
+ * больше не обновляется.
+ */
+@Slf4j
+@Service
+public class PresenceService {
+    private static final long NEVER_SEEN = 0L;
+    private static final String FLUSH_ONLINE_SQL = "UPDATE person SET last_online_time = ?, is_online = true WHERE id = ?";
+    private static final String FLUSH_OFFLINE_SQL = "UPDATE person SET is_online = false WHERE id = ?";
+    private static final String RESET_ONLINE_SQL = "UPDATE person SET is_online = false WHERE is_online = true";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PersonRepository personRepository;
+    private final long onlineWindowMillis;
+    private final Map<Long, Long> lastSeen;
+    private final Set<Long> onlineInDb = ConcurrentHashMap.newKeySet();
+    private volatile Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    public PresenceService(JdbcTemplate jdbcTemplate, PersonRepository personRepository,
+                           @Value("${presence.online-window-ms}") long onlineWindowMillis,
+                           @Value("${presence.cache.max-size}") int maxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.personRepository = personRepository;
+        this.onlineWindowMillis = onlineWindowMillis;
+        this.lastSeen = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Снятие флага is_online, оставшегося в базе с прошлого запуска приложения.
+     * Выполняется до приёма запросов, поэтому не затирает отметки новых heartbeat.
+     */
+    @PostConstruct
+    public void resetOnlineFlags() {
+        int reset = jdbcTemplate.update(RESET_ONLINE_SQL);
+        log.info("presence reset: {} persons marked offline", reset);
+    }
+
+    /**
+     * Отметка активности пользователя.
+     *
+     * @param personId - ID пользователя.
+     */
+    public void heartbeat(long personId) {
+        long now = System.currentTimeMillis();
+        synchronized (lastSeen) {
+            lastSeen.put(personId, now);
+        }
+        pending.put(personId, now);
+    }
+
+    /**
+     * Статус и время последней активности пользователя.
+     *
+     * @param personId - ID пользователя.
+     */
+    public UserActivityResponse getActivity(long personId) {
+        return getActivities(List.of(personId)).get(0);
+    }
+
+    /**
+     * Статусы и время последней активности пользователей, в порядке переданных ID.
+     *
+     * @param personIds - ID пользователей.
+     */
+    public List<UserActivityResponse> getActivities(Collection<Long> personIds) {
+        Map<Long, Long> seenTimes = loadMissing(personIds);
+        long now = System.currentTimeMillis();
+        return personIds.stream()
+                .map(id -> {
+                    long seen = seenTimes.getOrDefault(id, NEVER_SEEN);
+                    return UserActivityResponse.builder()
+                            .id(id)
+                            .online(seen != NEVER_SEEN && now - seen < onlineWindowMillis)
+                            .lastActivity(seen == NEVER_SEEN ? null : seen / 1000)
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Время последней активности пользователя, известное в памяти, без обращения к базе.
+     *
+     * @param personId - ID пользователя.
+     * @return время в секундах или null, если пользователь не отмечался.
+     */
+    public Long getKnownLastActivity(long personId) {
+        long seen;
+        synchronized (lastSeen) {
+            seen = lastSeen.getOrDefault(personId, NEVER_SEEN);
+        }
+        return seen == NEVER_SEEN ? null : seen / 1000;
+    }
+
+    /**
+     * Запись накопленных отметок активности в базу одним пакетом
+     * и снятие флага is_online с пользователей, не проявлявших активность дольше окна присутствия.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${presence.flush-interval-ms}")
+    public synchronized void flush() {
+        Map<Long, Long> drained = pending;
+        pending = new ConcurrentHashMap<>();
+        List<Object[]> online = new ArrayList<>();
+        drained.forEach((personId, seen) -> online.add(new Object[]{new Timestamp(seen), personId}));
+        long now = System.currentTimeMillis();
+        List<Object[]> offline;
+        synchronized (lastSeen) {
+            offline = onlineInDb.stream()
+                    .filter(personId -> !drained.containsKey(personId))
+                    .filter(personId -> now - lastSeen.getOrDefault(personId, NEVER_SEEN) >= onlineWindowMillis)
+                    .map(personId -> new Object[]{personId})
+                    .collect(Collectors.toList());
+        }
+        try {
+            if (!online.isEmpty()) {
+                jdbcTemplate.batchUpdate(FLUSH_ONLINE_SQL, online);
+                onlineInDb.addAll(drained.keySet());
+            }
+            if (!offline.isEmpty()) {
+                jdbcTemplate.batchUpdate(FLUSH_OFFLINE_SQL, offline);
+                offline.forEach(row -> onlineInDb.remove((Long) row[0]));
+            }
+            log.debug("flushed presence: {} online, {} offline", online.size(), offline.size());
+        } catch (RuntimeException e) {
+            log.error("presence flush failed, {} heartbeats will be retried", online.size(), e);
+            drained.forEach((personId, seen) -> pending.merge(personId, seen, Math::max));
+        }
+    }
+
+    /**
+     * Время последней активности пользователей из памяти; недостающие загружаются из базы.
+     * Пользователи, которых нет в базе, запоминаются как не заходившие, чтобы не запрашивать их повторно.
+     *
+     * @return время последней активности в миллисекундах по ID пользователя.
+     */
+    private Map<Long, Long> loadMissing(Collection<Long> personIds) {
+        Map<Long, Long> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        synchronized (lastSeen) {
+            for (Long id : personIds) {
+                Long seen = lastSeen.get(id);
+                if (seen != null) {
+                    result.put(id, seen);
+                } else if (!result.containsKey(id) && !missing.contains(id)) {
+                    missing.add(id);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        Map<Long, Long> loaded = new HashMap<>();
+        missing.forEach(id -> loaded.put(id, pending.getOrDefault(id, NEVER_SEEN)));
+        for (Object[] row : personRepository.findLastOnlineTimes(missing)) {
+            LocalDateTime lastOnlineTime = (LocalDateTime) row[1];
+            if (lastOnlineTime != null) {
+                loaded.merge((Long) row[0], TimeUtil.getTimestampFromLocalDateTime(lastOnlineTime) * 1000, Math::max);
+            }
+        }
+        synchronized (lastSeen) {
+            loaded.forEach((id, seen) -> result.put(id, lastSeen.merge(id, seen, Math::max)));
+        }
+        return result;
+    }
+}
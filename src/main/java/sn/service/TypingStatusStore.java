@@ -0,0 +1,71 @@
+package sn.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Статусы набора текста в диалогах.
+ * Хранятся только в памяти: каждое событие набора продлевает статус пользователя
+ * на dialogs.typing.ttl-ms, после чего статус считается снятым. Просроченные записи
+ * отбрасываются при чтении и периодически удаляются целиком.
+ */
+@Component
+public class TypingStatusStore {
+    private final long ttlMillis;
+    private final Map<Long, Map<Long, Long>> typing = new ConcurrentHashMap<>();
+
+    public TypingStatusStore(@Value("${dialogs.typing.ttl-ms}") long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Отметка, что пользователь набирает текст в диалоге.
+     *
+     * @param dialogId - ID диалога.
+     * @param personId - ID пользователя.
+     */
+    public void touch(long dialogId, long personId) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        typing.compute(dialogId, (id, dialogTyping) -> {
+            Map<Long, Long> updated = dialogTyping == null ? new ConcurrentHashMap<>() : dialogTyping;
+            updated.put(personId, expiresAt);
+            return updated;
+        });
+    }
+
+    /**
+     * Пользователи, набирающие текст в диалоге.
+     *
+     * @param dialogId - ID диалога.
+     * @return ID пользователей с непросроченным статусом.
+     */
+    public List<Long> getTyping(long dialogId) {
+        Map<Long, Long> dialogTyping = typing.get(dialogId);
+        if (dialogTyping == null) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        return dialogTyping.entrySet().stream()
+                .filter(entry -> entry.getValue() > now)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Удаление просроченных статусов и диалогов без набирающих текст пользователей.
+     */
+    @Scheduled(fixedDelayString = "${dialogs.typing.ttl-ms}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        typing.keySet().forEach(dialogId -> typing.computeIfPresent(dialogId, (id, dialogTyping) -> {
+            dialogTyping.values().removeIf(expiresAt -> expiresAt <= now);
+            return dialogTyping.isEmpty() ? null : dialogTyping;
+        }));
+    }
+}
@@ -0,0 +1,30 @@
+package sn.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sn.repositories.UnreadMessageCounterRepository;
+
+/**
+ * Фоновая сверка счётчиков непрочитанных сообщений с таблицей сообщений.
+ * Счётчики поддерживаются при отправке и прочтении сообщений; сверка исправляет расхождения,
+ * возникшие из-за изменения состава диалогов или сбоев.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UnreadMessageReconciler {
+    private final UnreadMessageCounterRepository unreadMessageCounterRepository;
+
+    @Transactional
+    @Scheduled(cron = "${dialogs.unread.reconcile-cron}")
+    public void reconcile() {
+        int fixed = unreadMessageCounterRepository.reconcile();
+        int removed = unreadMessageCounterRepository.deleteOrphans();
+        if (fixed > 0 || removed > 0) {
+            log.info("unread message counters reconciled: {} fixed, {} removed", fixed, removed);
+        }
+    }
+}
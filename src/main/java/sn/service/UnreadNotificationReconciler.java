@@ -0,0 +1,28 @@
+package sn.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sn.repositories.UnreadNotificationCounterRepository;
+
+/**
+ * Фоновая сверка счётчиков непрочитанных уведомлений с таблицей уведомлений.
+ * Счётчики поддерживаются при создании и прочтении уведомлений; сверка исправляет расхождения после сбоев.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UnreadNotificationReconciler {
+    private final UnreadNotificationCounterRepository unreadNotificationCounterRepository;
+
+    @Transactional
+    @Scheduled(cron = "${notifications.unread.reconcile-cron}")
+    public void reconcile() {
+        int fixed = unreadNotificationCounterRepository.reconcile();
+        if (fixed > 0) {
+            log.info("unread notification counters reconciled: {} fixed", fixed);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package sn.service;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import sn.api.response.CommentResponse;
+import sn.api.response.PersonResponse;
+import sn.api.response.WallPostResponse;
+import sn.model.Post;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Класс WallPostAssembler.
+ * Сборка страницы постов (стена, лента новостей) за фиксированное число запросов:
+ * комментарии ко всем постам страницы загружаются одним запросом, авторы формируются один раз на страницу.
+ *
+ * @version 1.0
+ * @see WallPostResponse
+ */
+@Component
+public class WallPostAssembler {
+    private final AccountService accountService;
+    private final PostService postService;
+    private final CommentService commentService;
+
+    public WallPostAssembler(@Lazy AccountService accountService, @Lazy PostService postService,
+                             CommentService commentService) {
+        this.accountService = accountService;
+        this.postService = postService;
+        this.commentService = commentService;
+    }
+
+    /**
+     * Формирует WallPostResponse для страницы постов с сохранением порядка.
+     *
+     * @param posts - посты страницы; авторы постов уже загружены вместе с постами;
+     * @return - возвращает посты страницы вместе с авторами и комментариями.
+     */
+    public List<WallPostResponse> assemble(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> postIds = posts.stream()
+                .map(Post::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<CommentResponse>> comments = commentService.getCommentsByPostIds(postIds);
+        Map<Long, PersonResponse> authors = new HashMap<>();
+        return posts.stream()
+                .map(post -> postService.getExistsWallPost(post,
+                        authors.computeIfAbsent(post.getAuthor().getId(),
+                                id -> accountService.getPersonResponse(post.getAuthor())),
+                        comments.getOrDefault(post.getId(), new ArrayList<>())))
+                .collect(Collectors.toList());
+    }
+}
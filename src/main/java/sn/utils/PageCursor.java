@@ -0,0 +1,89 @@
+package sn.utils;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+
+/**
+ * Курсор для постраничной выдачи по ключу (time, id).
+ * Передаётся клиенту в виде строки "time,id", где time - время в микросекундах от начала эпохи.
+ */
+@Getter
+public final class PageCursor {
+    private static final String SEPARATOR = ",";
+
+    /**
+     * Порядок выдачи "сначала новые": по убыванию времени, затем по убыванию идентификатора.
+     */
+    public static final Comparator<PageCursor> NEWEST_FIRST = Comparator
+            .comparing(PageCursor::getTime)
+            .thenComparingLong(PageCursor::getId)
+            .reversed();
+
+    /**
+     * Курсор перед самой новой записью: выдача по нему начинается с первой страницы.
+     */
+    public static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    /**
+     * Время для записей, у которых время не заполнено: такие записи идут в выдаче последними.
+     */
+    public static final LocalDateTime NO_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final LocalDateTime time;
+    private final long id;
+
+    public PageCursor(LocalDateTime time, long id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    /**
+     * Разбор курсора из строки запроса.
+     *
+     * @param token - строка вида "time,id"
+     * @return курсор или null, если строка отсутствует; для пустой строки - FIRST
+     * @throws IllegalArgumentException если строка не является курсором
+     */
+    public static PageCursor parse(String token) {
+        if (token == null) {
+            return null;
+        }
+        if (token.isBlank()) {
+            return FIRST;
+        }
+        String[] parts = token.split(SEPARATOR);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        try {
+            long micros = Long.parseLong(parts[0].trim());
+            long id = Long.parseLong(parts[1].trim());
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.EPOCH.plus(micros, ChronoUnit.MICROS),
+                    TimeUtil.TIME_ZONE);
+            return new PageCursor(time, id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    /**
+     * Формирование строки курсора для последнего элемента страницы.
+     *
+     * @param time - время элемента
+     * @param id   - идентификатор элемента
+     * @return строка вида "time,id"
+     */
+    public static String toToken(LocalDateTime time, long id) {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, time.toInstant(TimeUtil.ZONE_OFFSET));
+        return micros + SEPARATOR + id;
+    }
+
+    @Override
+    public String toString() {
+        return toToken(time, id);
+    }
+}
@@ -0,0 +1,29 @@
+package sn.utils;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionUtil {
+
+    private TransactionUtil() {
+    }
+
+    /**
+     * Выполнение действия после успешной фиксации текущей транзакции.
+     * Если транзакции нет, действие выполняется сразу.
+     *
+     * @param action - действие
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+create table feed_timeline (
+    id int8 generated by default as identity,
+    reader_id int8 not null,
+    post_id int8 not null,
+    author_id int8 not null,
+    post_time timestamp with time zone not null,
+    primary key (id)
+);
+
+alter table if exists feed_timeline
+    add constraint FK_FEED_TIMELINE_READER_ID
+    foreign key (reader_id) references person;
+
+alter table if exists feed_timeline
+    add constraint FK_FEED_TIMELINE_POST_ID
+    foreign key (post_id) references posts;
+
+alter table if exists feed_timeline
+    add constraint UK_FEED_TIMELINE_READER_POST
+    unique (reader_id, post_id);
+
+create index IDX_FEED_TIMELINE_READER_TIME on feed_timeline (reader_id, post_time, post_id);
+
+insert into feed_timeline (reader_id, post_id, author_id, post_time)
+    select p.author_id, p.id, p.author_id, p.time
+    from posts p
+    where p.time is not null
+    union
+    select case when f.src_person_id = p.author_id then f.dst_person_id else f.src_person_id end,
+        p.id, p.author_id, p.time
+    from posts p
+    join friendship f on (f.src_person_id = p.author_id and f.status = 'FRIEND')
+        or (f.dst_person_id = p.author_id and f.status in ('FRIEND', 'SUBSCRIBED'))
+    where p.time is not null;
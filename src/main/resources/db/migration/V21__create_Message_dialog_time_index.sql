@@ -0,0 +1 @@
+create index IDX_MESSAGES_DIALOG_TIME on messages (dialog_id, time, id);
@@ -0,0 +1,21 @@
+alter table if exists posts
+    add column search_vector tsvector;
+
+update posts set search_vector =
+    setweight(to_tsvector('russian', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('russian', coalesce(post_text, '')), 'B');
+
+create or replace function posts_search_vector_update() returns trigger as $$
+begin
+    new.search_vector :=
+        setweight(to_tsvector('russian', coalesce(new.title, '')), 'A') ||
+        setweight(to_tsvector('russian', coalesce(new.post_text, '')), 'B');
+    return new;
+end
+$$ language plpgsql;
+
+create trigger TRG_POSTS_SEARCH_VECTOR
+    before insert or update of title, post_text on posts
+    for each row execute procedure posts_search_vector_update();
+
+create index IDX_POSTS_SEARCH_VECTOR on posts using gin (search_vector);
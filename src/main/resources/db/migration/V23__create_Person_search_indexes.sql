@@ -0,0 +1,8 @@
+create extension if not exists pg_trgm;
+
+create index IDX_PERSON_FIRST_NAME_TRGM on person using gin (lower(first_name) gin_trgm_ops);
+create index IDX_PERSON_LAST_NAME_TRGM on person using gin (lower(last_name) gin_trgm_ops);
+create index IDX_PERSON_CITY_TRGM on person using gin (lower(city) gin_trgm_ops);
+create index IDX_PERSON_COUNTRY_TRGM on person using gin (lower(country) gin_trgm_ops);
+
+create index IDX_PERSON_BIRTH_DATE on person (birth_date);
@@ -0,0 +1,28 @@
+create table message_unread (
+    id int8 generated by default as identity,
+    person_id int8 not null,
+    dialog_id int8 not null,
+    unread_count int4 not null default 0,
+    primary key (id)
+);
+
+alter table if exists message_unread
+    add constraint FK_MESSAGE_UNREAD_PERSON_ID
+    foreign key (person_id) references person;
+
+alter table if exists message_unread
+    add constraint FK_MESSAGE_UNREAD_DIALOG_ID
+    foreign key (dialog_id) references dialogs;
+
+alter table if exists message_unread
+    add constraint UK_MESSAGE_UNREAD_PERSON_DIALOG
+    unique (person_id, dialog_id);
+
+insert into message_unread (person_id, dialog_id, unread_count)
+    select pd.person_id, pd.dialog_id, count(m.id)
+    from person2dialogs pd
+    left join messages m on m.dialog_id = pd.dialog_id
+        and m.author_id <> pd.person_id
+        and m.read_status = 'SENT'
+    group by pd.person_id, pd.dialog_id
+on conflict (person_id, dialog_id) do nothing;
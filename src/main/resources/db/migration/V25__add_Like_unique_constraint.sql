@@ -0,0 +1,17 @@
+delete from likes l
+    using likes d
+    where l.person_id = d.person_id
+        and l.item_id = d.item_id
+        and l.like_type = d.like_type
+        and l.id > d.id;
+
+alter table if exists likes
+    add constraint UK_LIKES_PERSON_ITEM_TYPE
+    unique (person_id, item_id, like_type);
+
+select setval(pg_get_serial_sequence('likes', 'id'), coalesce((select max(id) from likes), 0) + 1, false);
+
+update posts p set likes = (
+    select count(*) from likes l
+    where l.item_id = p.id and l.like_type = 'POST'
+);
@@ -0,0 +1 @@
+create index IDX_LIKES_ITEM_TYPE_ID on likes (item_id, like_type, id);
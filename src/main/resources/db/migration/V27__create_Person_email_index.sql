@@ -0,0 +1 @@
+create index IDX_PERSON_E_MAIL on person (e_mail);
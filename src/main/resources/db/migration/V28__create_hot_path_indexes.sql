@@ -0,0 +1,25 @@
+/*friendship: выборка связей пользователя в обе стороны*/
+create index IDX_FRIENDSHIP_SRC_DST_STATUS on friendship (src_person_id, dst_person_id, status);
+create index IDX_FRIENDSHIP_DST_SRC_STATUS on friendship (dst_person_id, src_person_id, status);
+
+/*person2dialogs: диалоги пользователя и участники диалога*/
+create index IDX_PERSON2DIALOGS_PERSON_DIALOG on person2dialogs (person_id, dialog_id);
+create index IDX_PERSON2DIALOGS_DIALOG_PERSON on person2dialogs (dialog_id, person_id);
+
+/*message_unread: обновление счётчиков всех участников диалога*/
+create index IDX_MESSAGE_UNREAD_DIALOG on message_unread (dialog_id);
+
+/*notification: непрочитанные оповещения пользователя по времени*/
+create index IDX_NOTIFICATION_PERSON_UNREAD_TIME on notification (person_id, sent_time, id)
+    where is_readed = false;
+
+/*comments: комментарии к постам*/
+create index IDX_COMMENTS_POST_TIME on comments (post_id, comment_time);
+
+/*posts: стена пользователя и лента без удалённых постов*/
+create index IDX_POSTS_AUTHOR_TIME on posts (author_id, time, id);
+create index IDX_POSTS_TIME_ACTIVE on posts (time, id)
+    where is_deleted = false;
+
+/*dialogs: вход в диалог по приглашению*/
+create index IDX_DIALOGS_INVITE_CODE on dialogs (invite_code);
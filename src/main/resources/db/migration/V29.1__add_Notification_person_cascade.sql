@@ -0,0 +1,6 @@
+/*notification: уведомления удаляются вместе с получателем*/
+alter table if exists notification
+    drop constraint FK_NOTIFICATION_PERSON_ID;
+alter table if exists notification
+    add constraint FK_NOTIFICATION_PERSON_ID
+    foreign key (person_id) references person on delete cascade;
@@ -0,0 +1,3 @@
+insert into notification_type (code, name)
+    select 'LIKE', 'Лайки'
+    where not exists (select 1 from notification_type where code = 'LIKE');
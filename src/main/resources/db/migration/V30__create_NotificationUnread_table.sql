@@ -0,0 +1,16 @@
+create table notification_unread (
+    person_id int8 not null,
+    unread_count int4 not null default 0,
+    primary key (person_id)
+);
+
+alter table if exists notification_unread
+    add constraint FK_NOTIFICATION_UNREAD_PERSON_ID
+    foreign key (person_id) references person on delete cascade;
+
+insert into notification_unread (person_id, unread_count)
+    select n.person_id, count(*)
+    from notification n
+    where n.is_readed = false
+    group by n.person_id
+on conflict (person_id) do nothing;
@@ -0,0 +1,64 @@
+/*notification: помесячное секционирование по sent_time (PostgreSQL 11+)*/
+alter table notification rename to notification_unpartitioned;
+alter index notification_pkey rename to notification_unpartitioned_pkey;
+drop index IDX_NOTIFICATION_PERSON_UNREAD_TIME;
+
+create sequence notification_seq;
+
+create table notification
+(
+    id int8 not null default nextval('notification_seq'),
+	type_id int8 not null,
+	sent_time timestamp with time zone not null default now(),
+	entity_id int8 not null,
+	info varchar(255),
+	person_id int8 not null,
+    contact varchar(255) not null,
+	is_readed boolean not null,
+    primary key (id, sent_time)
+) partition by range (sent_time);
+
+alter sequence notification_seq owned by notification.id;
+
+create table notification_default partition of notification default;
+
+/*секции от месяца первого уведомления до двух месяцев вперёд, границы по UTC*/
+do $$
+declare
+    month_start timestamp;
+    last_month timestamp := date_trunc('month', (now() at time zone 'UTC') + interval '2 months');
+begin
+    month_start := coalesce(
+        (select date_trunc('month', min(sent_time) at time zone 'UTC') from notification_unpartitioned),
+        date_trunc('month', now() at time zone 'UTC'));
+    while month_start <= last_month loop
+        execute format('create table %I partition of notification for values from (%L) to (%L)',
+            'notification_p' || to_char(month_start, 'YYYY_MM'),
+            month_start at time zone 'UTC',
+            (month_start + interval '1 month') at time zone 'UTC');
+        month_start := month_start + interval '1 month';
+    end loop;
+end $$;
+
+insert into notification (id, type_id, sent_time, entity_id, info, person_id, contact, is_readed)
+    select id, type_id, coalesce(sent_time, now()), entity_id, info, person_id, contact, is_readed
+    from notification_unpartitioned;
+
+select setval('notification_seq', coalesce((select max(id) from notification), 0) + 1, false);
+
+drop table notification_unpartitioned;
+
+alter table if exists notification
+    add constraint FK_NOTIFICATION_TYPE_ID
+    foreign key (type_id) references notification_type;
+alter table if exists notification
+    add constraint FK_NOTIFICATION_PERSON_ID
+    foreign key (person_id) references person on delete cascade;
+
+create index IDX_NOTIFICATION_PERSON_UNREAD_TIME on notification (person_id, sent_time, id)
+    where is_readed = false;
+
+/*notification_archive: секции, вышедшие за срок хранения*/
+create table notification_archive (like notification);
+
+create index IDX_NOTIFICATION_ARCHIVE_PERSON on notification_archive (person_id, sent_time);
@@ -0,0 +1,10 @@
+/*популярные авторы, посты которых не раскладываются по лентам подписчиков*/
+create table feed_celebrity (
+    author_id int8 not null,
+    first_post_id int8 not null,
+    primary key (author_id)
+);
+
+alter table if exists feed_celebrity
+    add constraint FK_FEED_CELEBRITY_AUTHOR_ID
+    foreign key (author_id) references person on delete cascade;
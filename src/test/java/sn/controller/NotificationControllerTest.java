@@ -3,6 +3,7 @@ package sn.controller;
 import org.junit.Test;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -12,9 +13,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
+ * Тестовые уведомления созданы в 2020 году, поэтому срок хранения увеличен, чтобы они оставались видимыми.
+ *
  * @author Andrey.Kazakov
  * @date 21.09.2020
  */
+@TestPropertySource(properties = "notifications.retention.months=1200")
 public class NotificationControllerTest extends AbstractWebController {
 
     @Test
@@ -43,6 +47,17 @@ public class NotificationControllerTest extends AbstractWebController {
                 .andReturn();
     }
 
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    public void getUnreadCountTest() throws Exception {
+        this.mockMvc.perform(get("/notifications/unread"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(containsString("\"count\":")))
+                .andReturn();
+    }
+
     @Test
     @WithMockUser(username = USER_EMAIL)
     public void getNotificationByIdTest() throws Exception {
@@ -0,0 +1,324 @@
+package sn.repositories;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.service.AccountService;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Класс QueryPlanTest.
+ * Проверка, что запросы репозиториев на горячих путях не читают большие таблицы последовательным сканированием.
+ * Последовательное сканирование запрещается на время транзакции, поэтому оно остаётся в плане,
+ * только если для запроса нет подходящего индекса. Секции таблицы уведомлений проверяются как сама таблица.
+ * Текст запросов берётся из аннотаций @Query репозиториев (JPQL переводится в SQL через Hibernate),
+ * запрос поиска пользователей - из SQL, который Hibernate отправляет в базу.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "sn.repositories.QueryPlanTest$StatementCapture")
+public class QueryPlanTest {
+
+    private static final Set<String> LARGE_TABLES = Set.of("person", "friendship", "likes", "messages",
+            "person2dialogs", "message_unread", "notification", "notification_unread", "comments", "posts", "dialogs", "feed_timeline");
+    private static final Pattern NATIVE_PARAMETER = Pattern.compile("(?<![:\\w])(%?):([A-Za-z]\\w*)(%?)|\\?(\\d+)");
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AccountService accountService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void personQueriesUseIndexes() {
+        assertNoSeqScan("SELECT * FROM person WHERE e_mail = 'bro@malta.com'");
+        assertNoSeqScan("SELECT * FROM person WHERE id = 1");
+        assertQueriesUseIndexes(PersonRepository.class, "findFriends", "findFriendsAfter", "findRequests",
+                "findLastOnlineTimes");
+    }
+
+    @Test
+    public void personSearchUsesIndexes() {
+        assertSearchUsesIndexes("иван", null, null);
+        assertSearchUsesIndexes(null, "петров", null);
+        assertSearchUsesIndexes(null, null, "москва");
+    }
+
+    @Test
+    public void friendshipQueriesUseIndexes() {
+        assertQueriesUseIndexes(FriendshipRepository.class, "getFriendsCount", "getRequestsCount", "getFriendship",
+                "getFollowersCount", "findFollowedAmong");
+    }
+
+    @Test
+    public void likeQueriesUseIndexes() {
+        assertQueriesUseIndexes(LikeRepository.class, "getUsersOfLike", "likeExist", "findLikeId", "countLikes",
+                "findUsersOfLikeAfter", "findLikedItems", "deleteLike");
+    }
+
+    @Test
+    public void dialogQueriesUseIndexes() {
+        assertQueriesUseIndexes(MessageRepository.class, "markRead", "findDialogMessages", "countDialogMessages",
+                "findDialogMessagesAfter", "findDialogMessagesSince");
+        assertQueriesUseIndexes(Person2DialogRepository.class, "find", "exists", "findAllByPersonId",
+                "findPersonIdsByDialogId");
+        assertQueriesUseIndexes(UnreadMessageCounterRepository.class, "increment", "decrement", "getUnreadCount");
+        assertNoSeqScan("SELECT * FROM dialogs WHERE invite_code = 'code'");
+    }
+
+    @Test
+    public void notificationQueriesUseIndexes() {
+        assertNoSeqScan("SELECT * FROM notification WHERE person_id = 1 AND is_readed = false"
+                + " AND sent_time >= now() - interval '12 months'"
+                + " ORDER BY sent_time DESC, id DESC LIMIT 20");
+        assertQueriesUseIndexes(NotificationRepository.class, "findUnreadAfter", "findUnreadSince");
+        assertQueriesUseIndexes(UnreadNotificationCounterRepository.class, "decrement", "getUnreadCount");
+    }
+
+    @Test
+    public void postQueriesUseIndexes() {
+        assertQueriesUseIndexes(PostRepository.class, "findAllByPersonId", "findAllByPersonIdAfter",
+                "getTotalCountPostsByPersonId", "searchPosts", "searchPostsAfter", "countSearchPosts",
+                "findRecentByAuthor", "findByAuthorsBefore");
+        assertQueriesUseIndexes(CommentRepository.class, "findAllCommentsByPostId", "findAllCommentsByPostIds");
+        assertQueriesUseIndexes(FeedRepository.class, "fanOut", "backfill", "purge", "findFeed", "findFeedAfter");
+    }
+
+    /**
+     * Проверка запросов репозитория, заданных аннотацией @Query.
+     * Параметры заменяются значениями по их типу, как их передал бы Spring Data.
+     */
+    private void assertQueriesUseIndexes(Class<?> repository, String... methodNames) {
+        for (String methodName : methodNames) {
+            Method method = Arrays.stream(repository.getMethods())
+                    .filter(m -> m.getName().equals(methodName) && m.isAnnotationPresent(Query.class))
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError(repository.getSimpleName() + "." + methodName
+                            + " has no @Query"));
+            Query query = method.getAnnotation(Query.class);
+            List<Object> values = new ArrayList<>();
+            String sql = query.nativeQuery()
+                    ? bindNative(method, query.value(), values)
+                    : bindJpql(method, query.value(), values);
+            boolean paged = Arrays.stream(method.getParameterTypes()).anyMatch(Pageable.class::isAssignableFrom);
+            if (paged && !sql.toLowerCase().contains(" limit ")) {
+                sql += " limit " + PAGE_SIZE;
+            }
+            assertNoSeqScan(sql, values);
+        }
+    }
+
+    /**
+     * Проверка запроса поиска пользователей: он строится через Criteria API,
+     * поэтому проверяется SQL, который Hibernate выполнил для поиска.
+     */
+    private void assertSearchUsesIndexes(String firstName, String lastName, String city) {
+        String name = firstName != null ? firstName : lastName != null ? lastName : city;
+        List<String> statements = StatementCapture.capture(() -> accountService.searchUsersWithParameters(firstName,
+                lastName, city, null, null, null, PageRequest.of(0, PAGE_SIZE)));
+        Assert.assertEquals("person search statements: " + statements, 1, statements.size());
+        String sql = statements.get(0);
+        int placeholders = (int) sql.chars().filter(c -> c == '?').count();
+        List<Object> values = new ArrayList<>(Collections.nCopies(placeholders, "%" + name + "%"));
+        values.set(placeholders - 1, PAGE_SIZE);
+        assertNoSeqScan(sql, values);
+    }
+
+    private String bindNative(Method method, String sql, List<Object> values) {
+        Matcher matcher = NATIVE_PARAMETER.matcher(sql);
+        StringBuffer bound = new StringBuffer();
+        while (matcher.find()) {
+            Object value;
+            if (matcher.group(4) != null) {
+                value = sampleValue(method.getParameters()[Integer.parseInt(matcher.group(4)) - 1]);
+            } else {
+                value = sampleValue(parameter(method, matcher.group(2)));
+                if (!matcher.group(1).isEmpty() || !matcher.group(3).isEmpty()) {
+                    value = matcher.group(1) + value + matcher.group(3);
+                }
+            }
+            values.add(value);
+            matcher.appendReplacement(bound, "?");
+        }
+        matcher.appendTail(bound);
+        return bound.toString();
+    }
+
+    private String bindJpql(Method method, String jpql, List<Object> values) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        QueryTranslator translator = new ASTQueryTranslatorFactory()
+                .createQueryTranslator(jpql, jpql, Collections.emptyMap(), sessionFactory, null);
+        translator.compile(Collections.emptyMap(), false);
+        String sql = translator.getSQLString();
+        values.addAll(Collections.nCopies((int) sql.chars().filter(c -> c == '?').count(), null));
+        translator.getParameterTranslations().getNamedParameterInformationMap().forEach((name, information) -> {
+            Object value = sampleValue(parameter(method, name));
+            for (int location : information.getSourceLocations()) {
+                values.set(location, value);
+            }
+        });
+        return sql;
+    }
+
+    private Parameter parameter(Method method, String name) {
+        return Arrays.stream(method.getParameters())
+                .filter(p -> name.equals(p.isAnnotationPresent(Param.class)
+                        ? p.getAnnotation(Param.class).value() : p.getName()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(method.getName() + " has no parameter " + name));
+    }
+
+    private Object sampleValue(Parameter parameter) {
+        if (Collection.class.isAssignableFrom(parameter.getType())) {
+            Class<?> element = (Class<?>) ((ParameterizedType) parameter.getParameterizedType())
+                    .getActualTypeArguments()[0];
+            return List.of(sampleValue(element, 1), sampleValue(element, 2), sampleValue(element, 3));
+        }
+        return sampleValue(parameter.getType(), 1);
+    }
+
+    private Object sampleValue(Class<?> type, int seed) {
+        if (type == long.class || type == Long.class || type.isAnnotationPresent(Entity.class)) {
+            return (long) seed;
+        }
+        if (type == int.class || type == Integer.class) {
+            return PAGE_SIZE;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return false;
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (type.isEnum()) {
+            return ((Enum<?>) type.getEnumConstants()[seed % type.getEnumConstants().length]).name();
+        }
+        if (type == String.class) {
+            return "a";
+        }
+        throw new IllegalArgumentException("no sample value for " + type);
+    }
+
+    private void assertNoSeqScan(String sql) {
+        assertNoSeqScan(sql, Collections.emptyList());
+    }
+
+    /**
+     * Значение-коллекция раскрывается в список параметров, как это делают Spring Data и Hibernate.
+     */
+    private void assertNoSeqScan(String sql, List<Object> values) {
+        StringBuilder expanded = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c != '?') {
+                expanded.append(c);
+                continue;
+            }
+            Object value = values.get(parameter++);
+            if (value instanceof Collection) {
+                boolean enclosed = sql.substring(0, i).trim().endsWith("(") && sql.substring(i + 1).trim().startsWith(")");
+                expanded.append(enclosed ? "" : "(")
+                        .append(String.join(", ", Collections.nCopies(((Collection<?>) value).size(), "?")))
+                        .append(enclosed ? "" : ")");
+                args.addAll((Collection<?>) value);
+            } else {
+                expanded.append('?');
+                args.add(value);
+            }
+        }
+        String explained = expanded.toString();
+        List<String> scanned = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + explained, String.class,
+                    args.toArray());
+            List<String> tables = new ArrayList<>();
+            try {
+                collectSeqScans(objectMapper.readTree(plan).get(0).get("Plan"), tables);
+            } catch (Exception e) {
+                throw new IllegalStateException("cannot parse plan of " + explained, e);
+            }
+            return tables;
+        });
+        Assert.assertTrue("sequential scan of " + scanned + " in: " + explained, scanned.isEmpty());
+    }
+
+    private void collectSeqScans(JsonNode node, List<String> tables) {
+        String relation = node.path("Relation Name").asText().replaceFirst("^notification_(p\\d{4}_\\d{2}|default)$",
+                "notification");
+        if ("Seq Scan".equals(node.path("Node Type").asText()) && LARGE_TABLES.contains(relation)) {
+            tables.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSeqScans(child, tables);
+        }
+    }
+
+    /**
+     * Перехват SQL, который Hibernate отправляет в базу, для запросов без текста в аннотациях.
+     */
+    public static class StatementCapture implements StatementInspector {
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        private static volatile boolean capturing;
+
+        static synchronized List<String> capture(Runnable action) {
+            STATEMENTS.clear();
+            capturing = true;
+            try {
+                action.run();
+            } finally {
+                capturing = false;
+            }
+            return new ArrayList<>(STATEMENTS);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (capturing) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
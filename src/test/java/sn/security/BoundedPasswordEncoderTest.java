@@ -0,0 +1,73 @@
+package sn.security;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
+import sn.controller.AbstractWebController;
+import sn.model.Person;
+import sn.repositories.PersonRepository;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Класс BoundedPasswordEncoderTest.
+ * Проверка кодировщика паролей на ограниченном пуле и перехэширования пароля при входе.
+ *
+ * @see BoundedPasswordEncoder
+ */
+public class BoundedPasswordEncoderTest extends AbstractWebController {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Test
+    public void encodeAndMatchTest() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(4, 1, 1, 5000);
+        try {
+            String hash = encoder.encode(USER_PASSWORD);
+            Assert.assertTrue(encoder.matches(USER_PASSWORD, hash));
+            Assert.assertFalse(encoder.matches("wrong", hash));
+            Assert.assertFalse(encoder.upgradeEncoding(hash));
+            Assert.assertTrue(new BoundedPasswordEncoder(10, 1, 1, 5000).upgradeEncoding(hash));
+        } finally {
+            encoder.shutdown();
+        }
+    }
+
+    @Test(expected = PasswordHashingOverloadException.class)
+    public void timeoutTest() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(14, 1, 1, 1);
+        try {
+            encoder.encode(USER_PASSWORD);
+        } finally {
+            encoder.shutdown();
+        }
+    }
+
+    @Test
+    @Transactional
+    public void rehashOnLoginTest() throws Exception {
+        Person person = personRepository.findByEmail(USER_EMAIL).orElseThrow();
+        String weakHash = new BCryptPasswordEncoder(4).encode(USER_PASSWORD);
+        person.setPassword(weakHash);
+        personRepository.saveAndFlush(person);
+
+        mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\": \"" + USER_EMAIL + "\", \"password\": \"" + USER_PASSWORD + "\"}"))
+                .andExpect(status().isOk());
+
+        String hash = personRepository.findByEmail(USER_EMAIL).orElseThrow().getPassword();
+        Assert.assertNotEquals(weakHash, hash);
+        Assert.assertFalse(passwordEncoder.upgradeEncoding(hash));
+        Assert.assertTrue(passwordEncoder.matches(USER_PASSWORD, hash));
+    }
+}
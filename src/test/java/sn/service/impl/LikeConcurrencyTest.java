@@ -0,0 +1,113 @@
+package sn.service.impl;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import sn.model.Person;
+import sn.model.Post;
+import sn.model.enums.LikeType;
+import sn.repositories.PersonRepository;
+import sn.repositories.PostRepository;
+import sn.service.LikeCounterBuffer;
+import sn.service.LikeService;
+import sn.utils.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Класс LikeConcurrencyTest.
+ * Проверка, что параллельные лайки не теряют обновлений счётчика поста.
+ *
+ * @see LikeService ;
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class LikeConcurrencyTest {
+
+    private static final int PERSONS = 16;
+    private static final int ATTEMPTS_PER_PERSON = 2;
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private LikeCounterBuffer likeCounterBuffer;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    private final List<Person> persons = new ArrayList<>();
+    private Post post;
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < PERSONS; i++) {
+            Person person = new Person();
+            person.setFirstName("Like");
+            person.setLastName("Tester" + i);
+            person.setEmail("like.tester." + i + "." + System.nanoTime() + "@test.sn");
+            persons.add(personRepository.save(person));
+        }
+        post = new Post();
+        post.setAuthor(persons.get(0));
+        post.setTime(TimeUtil.now());
+        post.setTitle("like concurrency");
+        post.setText("like concurrency");
+        post = postRepository.save(post);
+    }
+
+    @After
+    public void tearDown() {
+        persons.forEach(person -> likeService.removeLike(person, post.getId(), LikeType.POST));
+        likeCounterBuffer.flush();
+        postRepository.deleteById(post.getId());
+        personRepository.deleteAll(persons);
+    }
+
+    /**
+     * Каждый пользователь параллельно ставит лайк несколько раз: засчитывается ровно один лайк от каждого
+     */
+    @Test
+    public void parallelLikesAreNotLost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PERSONS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int attempt = 0; attempt < ATTEMPTS_PER_PERSON; attempt++) {
+            for (Person person : persons) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (likeService.putLike(person, post.getId(), LikeType.POST)) {
+                        accepted.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        likeCounterBuffer.flush();
+
+        Assert.assertEquals(PERSONS, accepted.get());
+        Assert.assertEquals(PERSONS, likeService.getUsersOfLike(post.getId(), LikeType.POST).size());
+        Assert.assertEquals(PERSONS, postRepository.findById(post.getId()).orElseThrow().getLikesCount());
+    }
+}
@@ -0,0 +1,92 @@
+package sn.service.impl;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+import sn.api.response.WallPostResponse;
+import sn.model.Post;
+import sn.repositories.PostRepository;
+import sn.service.WallPostAssembler;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * Класс WallPostAssemblerTest.
+ * Проверка числа SQL-запросов при сборке страницы постов.
+ *
+ * @see WallPostAssembler ;
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class WallPostAssemblerTest {
+
+    /**
+     * Комментарии всех постов страницы и ответы на них.
+     */
+    private static final long MAX_STATEMENTS_PER_PAGE = 2;
+
+    @Autowired
+    private WallPostAssembler wallPostAssembler;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Сборка страницы из одного поста и из всех постов выполняется за одно и то же ограниченное число запросов
+     */
+    @Test
+    public void assembleUsesFixedStatementCountPerPage() {
+        List<Post> posts = postRepository.findAll(PageRequest.of(0, 20, Sort.by(Sort.Direction.ASC, "id")))
+                .getContent();
+        Assert.assertFalse(posts.isEmpty());
+
+        statistics.clear();
+        List<WallPostResponse> single = wallPostAssembler.assemble(posts.subList(0, 1));
+        long singlePostStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        List<WallPostResponse> page = wallPostAssembler.assemble(posts);
+        long pageStatements = statistics.getPrepareStatementCount();
+
+        Assert.assertEquals(1, single.size());
+        Assert.assertEquals(posts.size(), page.size());
+        Assert.assertTrue(singlePostStatements <= MAX_STATEMENTS_PER_PAGE);
+        Assert.assertTrue(pageStatements <= MAX_STATEMENTS_PER_PAGE);
+    }
+
+    /**
+     * Комментарии раскладываются по своим постам, порядок постов сохраняется
+     */
+    @Test
+    public void assembleKeepsPostOrderAndComments() {
+        List<Post> posts = postRepository.findAll(PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "id")))
+                .getContent();
+
+        List<WallPostResponse> page = wallPostAssembler.assemble(posts);
+
+        for (int i = 0; i < posts.size(); i++) {
+            WallPostResponse wallPost = page.get(i);
+            Assert.assertEquals(posts.get(i).getId(), wallPost.getId());
+            wallPost.getComments().forEach(comment -> Assert.assertEquals(wallPost.getId(), comment.getPostId()));
+        }
+    }
+}